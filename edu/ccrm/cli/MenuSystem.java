@@ -8,6 +8,7 @@ import edu.ccrm.util.FileUtils;
 import edu.ccrm.exceptions.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -18,22 +19,39 @@ import java.util.*;
  * Demonstrates switch statements, loops, exception handling, and user interaction
  */
 public class MenuSystem {
+    private static final int PAGE_SIZE = 50;
+    private static final int SEARCH_LIMIT = 20;
+    
     private final Scanner scanner;
     private final StudentService studentService;
     private final CourseService courseService;
+    private final EnrollmentStore enrollmentStore;
+    private final MutationLog mutationLog;
     private final ImportExportService importExportService;
     private final AppConfig config;
     private boolean running;
     
     public MenuSystem() {
         this.scanner = new Scanner(System.in);
-        this.studentService = new StudentService();
+        this.config = AppConfig.getInstance();
         this.courseService = new CourseService();
+        this.enrollmentStore = openEnrollmentStore();
+        this.studentService = new StudentService(courseService, enrollmentStore);
         this.importExportService = new ImportExportService();
-        this.config = AppConfig.getInstance();
+        this.mutationLog = openMutationLog();
         this.running = true;
         
-        initializeSampleData();
+        FileUtils.setParallelism(config.getFileParallelism());
+        courseService.setSnapshotFile(Paths.get(config.getSnapshotFile()));
+        studentService.setSnapshotFile(Paths.get(config.getSnapshotFile()));
+        if (mutationLog != null) {
+            courseService.setMutationLog(mutationLog);
+            studentService.setMutationLog(mutationLog);
+        }
+        restoreData();
+        if (studentService.count() == 0 && courseService.count() == 0) {
+            initializeSampleData();
+        }
     }
     
     /**
@@ -59,6 +77,9 @@ public class MenuSystem {
                     case 7 -> handleReports();
                     case 8 -> {
                         System.out.println("Thank you for using CCRM!");
+                        checkpointData();
+                        closeMutationLog();
+                        closeEnrollmentStore();
                         running = false;
                     }
                     default -> System.out.println("Invalid choice. Please try again.");
@@ -134,19 +155,35 @@ public class MenuSystem {
     
     private void listAllStudents() {
         System.out.println("\\n--- All Students ---");
-        List<Student> students = studentService.findAll();
+        Page<Student> page = studentService.page(null, PAGE_SIZE);
         
-        if (students.isEmpty()) {
+        if (page.isEmpty()) {
             System.out.println("No students found.");
             return;
         }
         
-        // Using enhanced for loop
-        for (Student student : students) {
-            System.out.println(student);
+        // Print page by page so the whole registry is never copied into one list
+        while (true) {
+            for (Student student : page.getItems()) {
+                System.out.println(student);
+            }
+            if (!page.hasNext()) break;
+            page = studentService.page(page.getNextCursor(), PAGE_SIZE);
         }
         
-        System.out.println("\\nTotal students: " + students.size());
+        System.out.println("\\nTotal students: " + studentService.count());
+    }
+    
+    private void searchStudent() {
+        System.out.println("\\n--- Search Students ---");
+        String text = getStringInput("Name, email or registration number: ");
+        List<Student> matches = studentService.search(text, SEARCH_LIMIT);
+        
+        if (matches.isEmpty()) {
+            System.out.println("No matching students.");
+            return;
+        }
+        matches.forEach(System.out::println);
     }
     
     private void handleCourseManagement() {
@@ -202,17 +239,33 @@ public class MenuSystem {
     
     private void listAllCourses() {
         System.out.println("\\n--- All Courses ---");
-        List<Course> courses = courseService.findAll();
+        Page<Course> page = courseService.page(null, PAGE_SIZE);
         
-        if (courses.isEmpty()) {
+        if (page.isEmpty()) {
             System.out.println("No courses found.");
             return;
         }
         
-        courses.forEach(System.out::println); // Lambda expression
-        System.out.println("\\nTotal courses: " + courses.size());
+        while (true) {
+            page.getItems().forEach(System.out::println); // Lambda expression
+            if (!page.hasNext()) break;
+            page = courseService.page(page.getNextCursor(), PAGE_SIZE);
+        }
+        System.out.println("\\nTotal courses: " + courseService.count());
     }
-    
+
+    private void searchCourses() {
+        System.out.println("\\n--- Search Courses ---");
+        String text = getStringInput("Title or course code: ");
+        List<Course> matches = courseService.search(text, SEARCH_LIMIT);
+
+        if (matches.isEmpty()) {
+            System.out.println("No matching courses.");
+            return;
+        }
+        matches.forEach(System.out::println);
+    }
+
     // Utility methods
     private String getStringInput(String prompt) {
         System.out.print(prompt);
@@ -230,6 +283,78 @@ public class MenuSystem {
         }
     }
     
+    /**
+     * Reopen the mapped enrollment store, falling back to memory if the file is unusable
+     */
+    private EnrollmentStore openEnrollmentStore() {
+        try {
+            return EnrollmentStore.open(Paths.get(config.getEnrollmentStoreFile()));
+        } catch (IOException e) {
+            System.err.println("Could not open enrollment store, keeping enrollments in memory: " + e.getMessage());
+            return new EnrollmentStore();
+        }
+    }
+    
+    /**
+     * Load the last snapshot and replay the mutation log; a damaged snapshot
+     * is reported and the registry starts from whatever could be loaded.
+     * Logged changes that no longer apply are listed, since the next
+     * snapshot drops them for good
+     */
+    private void restoreData() {
+        try {
+            studentService.restore();
+        } catch (UncheckedIOException e) {
+            System.err.println("Could not restore saved data: " + e.getMessage());
+            return;
+        }
+        List<String> skipped = studentService.getSkippedRecords();
+        if (!skipped.isEmpty()) {
+            System.err.println(skipped.size() + " saved change(s) could not be reapplied and were skipped:");
+            skipped.forEach(record -> System.err.println("  " + record));
+        }
+    }
+    
+    // Snapshot on exit, so the next start maps the snapshot instead of replaying a long log
+    private void checkpointData() {
+        try {
+            studentService.backup();
+        } catch (UncheckedIOException e) {
+            System.err.println("Could not write snapshot: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Open the mutation log; without one, changes are not kept across runs
+     */
+    private MutationLog openMutationLog() {
+        try {
+            return MutationLog.open(Paths.get(config.getMutationLogFile()), config.getLogSyncPolicy());
+        } catch (IOException e) {
+            System.err.println("Could not open mutation log, changes will not be logged: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private void closeMutationLog() {
+        if (mutationLog == null) {
+            return;
+        }
+        try {
+            mutationLog.close();
+        } catch (IOException e) {
+            System.err.println("Error closing mutation log: " + e.getMessage());
+        }
+    }
+    
+    private void closeEnrollmentStore() {
+        try {
+            enrollmentStore.close();
+        } catch (IOException e) {
+            System.err.println("Error closing enrollment store: " + e.getMessage());
+        }
+    }
+    
     private void initializeSampleData() {
         // Add some sample students
         studentService.addStudent(new Student("S001", "2023-CS-0001", "John Doe", "john.doe@email.com"));
@@ -259,11 +384,9 @@ public class MenuSystem {
     }
     
     // Placeholder methods for other menu options
-    private void searchStudent() { System.out.println("Search student functionality - placeholder"); }
     private void updateStudent() { System.out.println("Update student functionality - placeholder"); }
     private void deactivateStudent() { System.out.println("Deactivate student functionality - placeholder"); }
     private void viewStudentProfile() { System.out.println("View student profile functionality - placeholder"); }
-    private void searchCourses() { System.out.println("Search courses functionality - placeholder"); }
     private void updateCourse() { System.out.println("Update course functionality - placeholder"); }
     private void deactivateCourse() { System.out.println("Deactivate course functionality - placeholder"); }
     private void handleEnrollmentManagement() { System.out.println("Enrollment management functionality - placeholder"); }
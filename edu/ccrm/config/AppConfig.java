@@ -1,5 +1,6 @@
 package edu.ccrm.config;
 
+import edu.ccrm.io.WriteAheadLog;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -18,7 +19,12 @@ public class AppConfig {
     private final String dataFolder;
     private final String backupFolder;
     private final String exportFolder;
+    private final String enrollmentStoreFile;
+    private final String mutationLogFile;
+    private final String snapshotFile;
+    private final WriteAheadLog.SyncPolicy logSyncPolicy;
     private final int maxCreditsPerSemester;
+    private final int fileParallelism;
     private final DateTimeFormatter backupDateFormat;
     
     // Private constructor for Singleton
@@ -26,7 +32,12 @@ public class AppConfig {
         this.dataFolder = "data";
         this.backupFolder = "backups";
         this.exportFolder = "exports";
+        this.enrollmentStoreFile = dataFolder + "/enrollments.dat";
+        this.mutationLogFile = dataFolder + "/mutations.wal";
+        this.snapshotFile = dataFolder + "/snapshot.bin";
+        this.logSyncPolicy = WriteAheadLog.SyncPolicy.PER_OP;
         this.maxCreditsPerSemester = 24;
+        this.fileParallelism = Runtime.getRuntime().availableProcessors();
         this.backupDateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
         
         initializeFolders();
@@ -64,7 +75,12 @@ public class AppConfig {
     public String getDataFolder() { return dataFolder; }
     public String getBackupFolder() { return backupFolder; }
     public String getExportFolder() { return exportFolder; }
+    public String getEnrollmentStoreFile() { return enrollmentStoreFile; }
+    public String getMutationLogFile() { return mutationLogFile; }
+    public String getSnapshotFile() { return snapshotFile; }
+    public WriteAheadLog.SyncPolicy getLogSyncPolicy() { return logSyncPolicy; }
     public int getMaxCreditsPerSemester() { return maxCreditsPerSemester; }
+    public int getFileParallelism() { return fileParallelism; }
     
     /**
      * Generate timestamped backup folder name
@@ -5,36 +5,40 @@ import java.time.LocalDateTime;
 /**
  * Course class with Builder pattern implementation
  * Demonstrates Builder design pattern and immutability concepts
+ * The code is an interned CourseCode; instructor and department are held
+ * as Symbols ids and decoded on access.
  */
 public class Course {
-    private final String code;
+    private final CourseCode code;
     private final String title;
     private final int credits;
-    private final String instructor;
+    private final int instructorId;
     private final Semester semester;
-    private final String department;
+    private final int departmentId;
     private final LocalDateTime createdAt;
     private boolean active;
     
     // Private constructor for Builder pattern
     private Course(Builder builder) {
-        this.code = builder.code;
+        this.code = CourseCode.parse(builder.code);
         this.title = builder.title;
         this.credits = builder.credits;
-        this.instructor = builder.instructor;
+        this.instructorId = Symbols.INSTRUCTORS.intern(builder.instructor);
         this.semester = builder.semester;
-        this.department = builder.department;
+        this.departmentId = Symbols.DEPARTMENTS.intern(builder.department);
         this.createdAt = LocalDateTime.now();
         this.active = true;
     }
     
     // Getters
-    public String getCode() { return code; }
+    public String getCode() { return code.getFullCode(); }
+    public CourseCode getCourseCode() { return code; }
     public String getTitle() { return title; }
     public int getCredits() { return credits; }
-    public String getInstructor() { return instructor; }
+    public String getInstructor() { return Symbols.INSTRUCTORS.symbol(instructorId); }
     public Semester getSemester() { return semester; }
-    public String getDepartment() { return department; }
+    public String getDepartment() { return Symbols.DEPARTMENTS.symbol(departmentId); }
+    public int getCodeSymbol() { return code.getSymbol(); }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
@@ -42,7 +46,7 @@ public class Course {
     @Override
     public String toString() {
         return String.format("Course{code='%s', title='%s', credits=%d, instructor='%s', semester=%s}", 
-                           code, title, credits, instructor, semester);
+                           getCode(), title, credits, getInstructor(), semester);
     }
     
     @Override
@@ -102,6 +106,9 @@ public class Course {
             if (code == null || title == null || credits <= 0 || semester == null) {
                 throw new IllegalArgumentException("Required course fields cannot be null or invalid");
             }
+            if (!CourseCode.isValid(code)) {
+                throw new IllegalArgumentException("Invalid course code format: " + code);
+            }
             return new Course(this);
         }
     }
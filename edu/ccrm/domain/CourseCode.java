@@ -1,79 +1,245 @@
 package edu.ccrm.domain;
 
-import java.util.Objects;
+import edu.ccrm.util.LongObjectHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Immutable value object for Course Codes
- * Demonstrates immutability with final fields and defensive copying
+ * Demonstrates immutability with final fields and the flyweight pattern
+ *
+ * Department, number and section are packed into one long, so equality,
+ * hashing and ordering are primitive operations. Instances are interned:
+ * equal codes share one object, which also caches the canonical string
+ * and the course-code symbol id. Packed order matches canonical string order.
  */
-public final class CourseCode {
-    private final String department;
-    private final int number;
-    private final String section;
-    
-    public CourseCode(String department, int number, String section) {
-        // Defensive copying and validation
-        this.department = Objects.requireNonNull(department, "Department cannot be null").toUpperCase();
-        this.number = number;
-        this.section = Objects.requireNonNull(section, "Section cannot be null").toUpperCase();
-        
-        // Validation
-        if (department.length() < 2 || department.length() > 4) {
+public final class CourseCode implements Comparable<CourseCode> {
+    // Layout, high to low: 4 x 5-bit department letters, 10-bit number, 4 x 6-bit section characters
+    private static final int MIN_DEPARTMENT = 2;
+    private static final int MAX_DEPARTMENT = 4;
+    private static final int MAX_SECTION = 4;
+    private static final int DEPARTMENT_SHIFT = 34;
+    private static final int NUMBER_SHIFT = 24;
+    private static final long INVALID = -1L;
+
+    // Flyweight caches: canonical text for the lock-free fast path, packed value as the source of truth
+    private static final ConcurrentHashMap<String, CourseCode> BY_TEXT = new ConcurrentHashMap<>();
+    private static final LongObjectHashMap<CourseCode> BY_PACKED = new LongObjectHashMap<>();
+
+    private final long packed;
+    private final String fullCode;
+    private final int symbol;
+
+    private CourseCode(long packed) {
+        this.packed = packed;
+        this.fullCode = decode(packed);
+        this.symbol = Symbols.COURSE_CODES.intern(fullCode);
+    }
+
+    /**
+     * The shared instance for the given parts
+     * @throws IllegalArgumentException if a part is out of range
+     */
+    public static CourseCode of(String department, int number, String section) {
+        if (department == null || section == null) {
+            throw new IllegalArgumentException("Department and section cannot be null");
+        }
+        if (department.length() < MIN_DEPARTMENT || department.length() > MAX_DEPARTMENT) {
             throw new IllegalArgumentException("Department code must be 2-4 characters");
         }
         if (number < 100 || number > 999) {
             throw new IllegalArgumentException("Course number must be 100-999");
         }
+        return parse(department + number + "-" + section);
+    }
+
+    /**
+     * Parse format: "CS101-A" (case-insensitive)
+     * @throws IllegalArgumentException if the code is malformed
+     */
+    public static CourseCode parse(String code) {
+        CourseCode parsed = tryParse(code);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid course code format: " + code);
+        }
+        return parsed;
+    }
+
+    /**
+     * Like parse, but returns null for a malformed code
+     */
+    public static CourseCode tryParse(String code) {
+        if (code == null) {
+            return null;
+        }
+        CourseCode cached = BY_TEXT.get(code);
+        if (cached != null) {
+            return cached;
+        }
+        long packed = pack(code);
+        return packed == INVALID ? null : intern(packed);
     }
-    
+
+    /**
+     * The shared instance for a value previously returned by getPacked
+     */
+    public static CourseCode fromPacked(long packed) {
+        if (packed < 0 || pack(decode(packed)) != packed) {
+            throw new IllegalArgumentException("Invalid packed course code: " + packed);
+        }
+        return intern(packed);
+    }
+
+    /**
+     * One pass over the characters, no allocation
+     */
+    public static boolean isValid(CharSequence code) {
+        return pack(code) != INVALID;
+    }
+
     // No setters - immutable
-    public String getDepartment() { return department; }
-    public int getNumber() { return number; }
-    public String getSection() { return section; }
-    
-    public String getFullCode() {
-        return String.format("%s%d-%s", department, number, section);
-    }
-    
+    public String getDepartment() {
+        return fullCode.substring(0, fullCode.length() - sectionLength() - 4);
+    }
+
+    public int getNumber() {
+        return (int) (packed >>> NUMBER_SHIFT) & 0x3FF;
+    }
+
+    public String getSection() {
+        return fullCode.substring(fullCode.length() - sectionLength());
+    }
+
+    public String getFullCode() { return fullCode; }
+    public long getPacked() { return packed; }
+
+    /**
+     * Course-code id in Symbols.COURSE_CODES
+     */
+    public int getSymbol() { return symbol; }
+
     @Override
     public String toString() {
-        return getFullCode();
+        return fullCode;
+    }
+
+    @Override
+    public int compareTo(CourseCode other) {
+        return Long.compare(packed, other.packed);
     }
-    
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
-        CourseCode that = (CourseCode) obj;
-        return number == that.number &&
-               Objects.equals(department, that.department) &&
-               Objects.equals(section, that.section);
+        return obj instanceof CourseCode that && packed == that.packed;
     }
-    
+
     @Override
     public int hashCode() {
-        return Objects.hash(department, number, section);
+        return Long.hashCode(packed);
     }
-    
-    public static CourseCode parse(String code) {
-        // Parse format: "CS101-A"
-        String[] parts = code.split("-");
-        if (parts.length != 2) {
-            throw new IllegalArgumentException("Invalid course code format: " + code);
+
+    private static CourseCode intern(long packed) {
+        CourseCode code;
+        synchronized (BY_PACKED) {
+            code = BY_PACKED.get(packed);
+            if (code == null) {
+                code = new CourseCode(packed);
+                BY_PACKED.put(packed, code);
+            }
         }
-        
-        String deptPart = parts[0];
-        String section = parts[1];
-        
-        // Extract department and number
+        BY_TEXT.putIfAbsent(code.fullCode, code);
+        return code;
+    }
+
+    private int sectionLength() {
+        int length = 0;
+        for (long section = packed & 0xFFFFFFL; section != 0; section = (section << 6) & 0xFFFFFFL) {
+            length++;
+        }
+        return length;
+    }
+
+    private static long pack(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int length = text.length();
         int i = 0;
-        while (i < deptPart.length() && Character.isLetter(deptPart.charAt(i))) {
+        long department = 0;
+        while (i < length && i < MAX_DEPARTMENT) {
+            int letter = letter(text.charAt(i));
+            if (letter == 0) {
+                break;
+            }
+            department = department << 5 | letter;
             i++;
         }
-        
-        String dept = deptPart.substring(0, i);
-        int number = Integer.parseInt(deptPart.substring(i));
-        
-        return new CourseCode(dept, number, section);
+        if (i < MIN_DEPARTMENT || i + 5 > length) {
+            return INVALID;
+        }
+        department <<= 5 * (MAX_DEPARTMENT - i);
+
+        // Exactly three digits, 100-999
+        int number = 0;
+        for (int end = i + 3; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            number = number * 10 + digit;
+        }
+        if (number < 100 || text.charAt(i++) != '-') {
+            return INVALID;
+        }
+
+        int sectionLength = length - i;
+        if (sectionLength < 1 || sectionLength > MAX_SECTION) {
+            return INVALID;
+        }
+        long section = 0;
+        for (; i < length; i++) {
+            int value = sectionChar(text.charAt(i));
+            if (value == 0) {
+                return INVALID;
+            }
+            section = section << 6 | value;
+        }
+        section <<= 6 * (MAX_SECTION - sectionLength);
+        return department << DEPARTMENT_SHIFT | (long) number << NUMBER_SHIFT | section;
+    }
+
+    private static String decode(long packed) {
+        StringBuilder text = new StringBuilder(12);
+        for (int shift = DEPARTMENT_SHIFT + 15; shift >= DEPARTMENT_SHIFT; shift -= 5) {
+            int letter = (int) (packed >>> shift) & 0x1F;
+            if (letter != 0) {
+                text.append((char) ('A' + letter - 1));
+            }
+        }
+        text.append((packed >>> NUMBER_SHIFT) & 0x3FF).append('-');
+        for (int shift = 18; shift >= 0; shift -= 6) {
+            int value = (int) (packed >>> shift) & 0x3F;
+            if (value != 0) {
+                text.append(value <= 10 ? (char) ('0' + value - 1) : (char) ('A' + value - 11));
+            }
+        }
+        return text.toString();
+    }
+
+    // 'A'-'Z' (either case) -> 1..26, anything else -> 0
+    private static int letter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            c -= 'a' - 'A';
+        }
+        return c >= 'A' && c <= 'Z' ? c - 'A' + 1 : 0;
+    }
+
+    // Digits sort before letters, as in the canonical string: '0'-'9' -> 1..10, 'A'-'Z' -> 11..36
+    private static int sectionChar(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        int letter = letter(c);
+        return letter == 0 ? 0 : letter + 10;
     }
 }
\ No newline at end of file
@@ -6,13 +6,20 @@ import java.util.Objects;
 /**
  * Enrollment entity representing student-course relationship
  * Demonstrates composition and business logic
+ * Student and course are held as Symbols ids and the grade as its ordinal,
+ * all decoded on access.
  */
 public class Enrollment {
-    private final String studentId;
-    private final String courseCode;
+    private static final byte UNGRADED = -1;
+    private static final Grade[] GRADES = Grade.values();
+    
+    private final int studentId;
+    private final int courseId;
     private final LocalDateTime enrollmentDate;
-    private Grade grade;
-    private boolean active;
+    // Grade ordinal, or UNGRADED; volatile so concurrent readers see grade and
+    // status changes made under the service locks
+    private volatile byte grade = UNGRADED;
+    private volatile boolean active;
     
     // Static nested class for enrollment status
     public static class EnrollmentStatus {
@@ -23,22 +30,40 @@ public class Enrollment {
     }
     
     public Enrollment(String studentId, String courseCode) {
-        this.studentId = Objects.requireNonNull(studentId, "Student ID cannot be null");
-        this.courseCode = Objects.requireNonNull(courseCode, "Course code cannot be null");
+        this.studentId = Symbols.STUDENT_IDS.intern(Objects.requireNonNull(studentId, "Student ID cannot be null"));
+        this.courseId = Symbols.COURSE_CODES.intern(Objects.requireNonNull(courseCode, "Course code cannot be null"));
         this.enrollmentDate = LocalDateTime.now();
         this.active = true;
     }
     
+    public Enrollment(String studentId, CourseCode course) {
+        this.studentId = Symbols.STUDENT_IDS.intern(Objects.requireNonNull(studentId, "Student ID cannot be null"));
+        this.courseId = Objects.requireNonNull(course, "Course code cannot be null").getSymbol();
+        this.enrollmentDate = LocalDateTime.now();
+        this.active = true;
+    }
+    
+    // Restores a persisted enrollment
+    public Enrollment(String studentId, CourseCode course, LocalDateTime enrollmentDate, Grade grade, boolean active) {
+        this.studentId = Symbols.STUDENT_IDS.intern(Objects.requireNonNull(studentId, "Student ID cannot be null"));
+        this.courseId = Objects.requireNonNull(course, "Course code cannot be null").getSymbol();
+        this.enrollmentDate = Objects.requireNonNull(enrollmentDate, "Enrollment date cannot be null");
+        this.grade = grade == null ? UNGRADED : (byte) grade.ordinal();
+        this.active = active;
+    }
+    
     // Getters
-    public String getStudentId() { return studentId; }
-    public String getCourseCode() { return courseCode; }
+    public String getStudentId() { return Symbols.STUDENT_IDS.symbol(studentId); }
+    public String getCourseCode() { return Symbols.COURSE_CODES.symbol(courseId); }
+    public int getStudentSymbol() { return studentId; }
+    public int getCourseSymbol() { return courseId; }
     public LocalDateTime getEnrollmentDate() { return enrollmentDate; }
-    public Grade getGrade() { return grade; }
+    public Grade getGrade() { return grade == UNGRADED ? null : GRADES[grade]; }
     public boolean isActive() { return active; }
     
     // Business methods
     public void assignGrade(Grade grade) {
-        this.grade = grade;
+        this.grade = grade == null ? UNGRADED : (byte) grade.ordinal();
     }
     
     public void deactivate() {
@@ -47,14 +72,14 @@ public class Enrollment {
     
     public String getStatus() {
         if (!active) return EnrollmentStatus.DROPPED;
-        if (grade != null) return EnrollmentStatus.COMPLETED;
+        if (grade != UNGRADED) return EnrollmentStatus.COMPLETED;
         return EnrollmentStatus.ENROLLED;
     }
     
     @Override
     public String toString() {
         return String.format("Enrollment{student='%s', course='%s', grade=%s, status='%s'}", 
-                           studentId, courseCode, grade, getStatus());
+                           getStudentId(), getCourseCode(), getGrade(), getStatus());
     }
     
     @Override
@@ -62,12 +87,11 @@ public class Enrollment {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Enrollment that = (Enrollment) obj;
-        return Objects.equals(studentId, that.studentId) &&
-               Objects.equals(courseCode, that.courseCode);
+        return studentId == that.studentId && courseId == that.courseId;
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(studentId, courseCode);
+        return 31 * studentId + courseId;
     }
 }
\ No newline at end of file
@@ -10,12 +10,14 @@ public class Instructor extends Person {
     private final String employeeId;
     private String department;
     private final Set<String> assignedCourses;
+    private final Set<String> assignedView;
     
     public Instructor(String id, String employeeId, String fullName, String email, String department) {
         super(id, fullName, email);
         this.employeeId = employeeId;
         this.department = department;
         this.assignedCourses = new HashSet<>();
+        this.assignedView = Collections.unmodifiableSet(assignedCourses);
     }
     
     @Override
@@ -26,7 +28,9 @@ public class Instructor extends Person {
     public String getEmployeeId() { return employeeId; }
     public String getDepartment() { return department; }
     public void setDepartment(String department) { this.department = department; }
-    public Set<String> getAssignedCourses() { return new HashSet<>(assignedCourses); }
+    // Read-only live view, no copy per call
+    public Set<String> getAssignedCourses() { return assignedView; }
+    public int assignedCourseCount() { return assignedCourses.size(); }
     
     public void assignCourse(String courseCode) {
         assignedCourses.add(courseCode);
@@ -1,5 +1,6 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.util.IntByteHashMap;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -9,15 +10,37 @@ import java.util.*;
  */
 public class Student extends Person {
     private final String regNo;
-    private final Set<String> enrolledCourses;
-    private final Map<String, Grade> grades;
+    // Grades are stored as Grade ordinals; the maps are keyed by course-code symbol
+    private static final byte NOT_ENROLLED = -2;
+    private static final byte UNGRADED = -1;
+    private static final Grade[] GRADES = Grade.values();
+    
+    // Enrolled courses, valued by grade ordinal or UNGRADED
+    private final IntByteHashMap courses;
+    private final IntByteHashMap gradedCredits;
     private LocalDateTime enrollmentDate;
     
+    // Read-only views over the live collections, created once
+    private final Set<String> enrolledView;
+    private final Map<String, Grade> gradesView;
+    
+    // Immutable snapshots, built on first request and dropped on the next change
+    private Set<String> enrolledSnapshot;
+    private Map<String, Grade> gradesSnapshot;
+    
+    // Running totals so GPA reads are O(1); grade points are whole numbers, so the sums stay exact
+    private double gradePointSum;
+    private int gradeCount;
+    private double weightedPointSum;
+    private int creditSum;
+    
     public Student(String id, String regNo, String fullName, String email) {
-        super(id, fullName, email);
+        super(Symbols.STUDENT_IDS.canonical(id), fullName, email);
         this.regNo = regNo;
-        this.enrolledCourses = new HashSet<>();
-        this.grades = new HashMap<>();
+        this.courses = new IntByteHashMap(NOT_ENROLLED);
+        this.gradedCredits = new IntByteHashMap((byte) 0);
+        this.enrolledView = new EnrolledView();
+        this.gradesView = new GradesView();
         this.enrollmentDate = LocalDateTime.now();
     }
     
@@ -27,37 +50,208 @@ public class Student extends Person {
     }
     
     public String getRegNo() { return regNo; }
-    public Set<String> getEnrolledCourses() { return new HashSet<>(enrolledCourses); }
-    public Map<String, Grade> getGrades() { return new HashMap<>(grades); }
     public LocalDateTime getEnrollmentDate() { return enrollmentDate; }
     
+    // Read-only live views: no copy is made, changes to the student show through
+    public Set<String> getEnrolledCourses() { return enrolledView; }
+    public Map<String, Grade> getGrades() { return gradesView; }
+    public int enrolledCourseCount() { return courses.size(); }
+    public int gradeCount() { return gradeCount; }
+    
+    /**
+     * Immutable copy of the enrolled courses; repeated calls between
+     * changes return the same instance without copying again
+     */
+    public Set<String> snapshotEnrolledCourses() {
+        Set<String> snapshot = enrolledSnapshot;
+        if (snapshot == null) {
+            snapshot = Set.copyOf(enrolledView);
+            enrolledSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Immutable copy of the grades, cached like snapshotEnrolledCourses
+     */
+    public Map<String, Grade> snapshotGrades() {
+        Map<String, Grade> snapshot = gradesSnapshot;
+        if (snapshot == null) {
+            snapshot = Map.copyOf(gradesView);
+            gradesSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+    
     public void enrollCourse(String courseCode) {
-        enrolledCourses.add(courseCode);
+        int course = Symbols.COURSE_CODES.intern(courseCode);
+        if (!courses.containsKey(course)) {
+            courses.put(course, UNGRADED);
+            enrolledSnapshot = null;
+        }
     }
     
     public void unenrollCourse(String courseCode) {
-        enrolledCourses.remove(courseCode);
-        grades.remove(courseCode);
+        int course = Symbols.COURSE_CODES.lookup(courseCode);
+        if (!courses.containsKey(course)) {
+            return;
+        }
+        byte previous = courses.remove(course);
+        enrolledSnapshot = null;
+        if (previous != UNGRADED) {
+            gradesSnapshot = null;
+            removeGradePoints(course, GRADES[previous]);
+        }
     }
     
     public void assignGrade(String courseCode, Grade grade) {
-        if (enrolledCourses.contains(courseCode)) {
-            grades.put(courseCode, grade);
+        assignGrade(courseCode, grade, 0);
+    }
+    
+    /**
+     * Assign a grade; a positive credit count also feeds the credit-weighted GPA
+     */
+    public void assignGrade(String courseCode, Grade grade, int credits) {
+        if (credits > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Credits out of range: " + credits);
+        }
+        int course = Symbols.COURSE_CODES.lookup(courseCode);
+        if (courses.containsKey(course)) {
+            byte previous = courses.put(course, (byte) grade.ordinal());
+            gradesSnapshot = null;
+            if (previous != UNGRADED) {
+                removeGradePoints(course, GRADES[previous]);
+            }
+            gradePointSum += grade.getGradePoints();
+            gradeCount++;
+            if (credits > 0) {
+                gradedCredits.put(course, (byte) credits);
+                weightedPointSum += grade.getGradePoints() * credits;
+                creditSum += credits;
+            }
+        }
+    }
+    
+    private void removeGradePoints(int course, Grade grade) {
+        gradePointSum -= grade.getGradePoints();
+        gradeCount--;
+        int credits = gradedCredits.remove(course);
+        if (credits > 0) {
+            weightedPointSum -= grade.getGradePoints() * credits;
+            creditSum -= credits;
         }
     }
     
     public double calculateGPA() {
-        if (grades.isEmpty()) return 0.0;
-        
-        return grades.values().stream()
-                .mapToDouble(Grade::getGradePoints)
-                .average()
-                .orElse(0.0);
+        return gradeCount == 0 ? 0.0 : gradePointSum / gradeCount;
+    }
+    
+    /**
+     * GPA weighted by course credits, over grades assigned with credits
+     */
+    public double calculateWeightedGPA() {
+        return creditSum == 0 ? 0.0 : weightedPointSum / creditSum;
     }
     
     @Override
     public String toString() {
         return String.format("Student{regNo='%s', name='%s', courses=%d, GPA=%.2f}", 
-                           regNo, fullName, enrolledCourses.size(), calculateGPA());
+                           regNo, fullName, courses.size(), calculateGPA());
+    }
+    
+    // Walks the occupied slots of the course map, optionally skipping ungraded ones
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final boolean gradedOnly;
+        private int next;
+        
+        SlotIterator(boolean gradedOnly) {
+            this.gradedOnly = gradedOnly;
+            this.next = advance(0);
+        }
+        
+        abstract E element(int course, byte grade);
+        
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+        
+        @Override
+        public E next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(slot + 1);
+            return element(courses.keyAt(slot), courses.valueAt(slot));
+        }
+        
+        private int advance(int from) {
+            int slot = courses.nextSlot(from);
+            while (gradedOnly && slot >= 0 && courses.valueAt(slot) == UNGRADED) {
+                slot = courses.nextSlot(slot + 1);
+            }
+            return slot;
+        }
+    }
+    
+    private final class EnrolledView extends AbstractSet<String> {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String code && courses.containsKey(Symbols.COURSE_CODES.lookup(code));
+        }
+        
+        @Override
+        public Iterator<String> iterator() {
+            return new SlotIterator<>(false) {
+                @Override
+                String element(int course, byte grade) {
+                    return Symbols.COURSE_CODES.symbol(course);
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return courses.size();
+        }
+    }
+    
+    private final class GradesView extends AbstractMap<String, Grade> {
+        private final Set<Map.Entry<String, Grade>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, Grade>> iterator() {
+                return new SlotIterator<>(true) {
+                    @Override
+                    Map.Entry<String, Grade> element(int course, byte grade) {
+                        return Map.entry(Symbols.COURSE_CODES.symbol(course), GRADES[grade]);
+                    }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return gradeCount;
+            }
+        };
+        
+        @Override
+        public Grade get(Object key) {
+            if (!(key instanceof String code)) {
+                return null;
+            }
+            byte grade = courses.get(Symbols.COURSE_CODES.lookup(code));
+            return grade >= 0 ? GRADES[grade] : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public Set<Map.Entry<String, Grade>> entrySet() {
+            return entries;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package edu.ccrm.domain;
+
+import edu.ccrm.util.SymbolTable;
+
+/**
+ * Shared symbol tables for the strings the domain model repeats most
+ * Courses, enrollments and students hold the int ids and decode on access.
+ *
+ * These tables are a deliberate process-wide intern pool: every service
+ * instance shares them, and they only grow. StudentService.delete() and
+ * CourseService.delete() do not reset them, because any entity still
+ * reachable may hold an id and must keep decoding it. Memory is bounded by
+ * the distinct values seen during the life of the JVM, not by the live
+ * registry; a process that keeps loading unrelated registries should be
+ * restarted to reclaim it.
+ */
+public final class Symbols {
+    public static final SymbolTable STUDENT_IDS = new SymbolTable("student id");
+    public static final SymbolTable COURSE_CODES = new SymbolTable("course code");
+    public static final SymbolTable DEPARTMENTS = new SymbolTable("department");
+    public static final SymbolTable INSTRUCTORS = new SymbolTable("instructor");
+
+    private Symbols() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+}
\ No newline at end of file
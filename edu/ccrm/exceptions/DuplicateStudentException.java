@@ -0,0 +1,22 @@
+package edu.ccrm.exceptions;
+
+/**
+ * Custom unchecked exception for a registration number or email that
+ * already belongs to another student
+ */
+public class DuplicateStudentException extends RuntimeException {
+    private final String field;
+    private final String value;
+    private final String existingStudentId;
+    
+    public DuplicateStudentException(String field, String value, String existingStudentId) {
+        super(String.format("%s %s is already used by student %s", field, value, existingStudentId));
+        this.field = field;
+        this.value = value;
+        this.existingStudentId = existingStudentId;
+    }
+    
+    public String getField() { return field; }
+    public String getValue() { return value; }
+    public String getExistingStudentId() { return existingStudentId; }
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-mapped file of fixed-width enrollment records
+ * Records live outside the Java heap; the OS page cache decides what stays
+ * resident. The file is mapped in fixed-size segments, so it grows without
+ * remapping what is already mapped, and reopening only reads the header.
+ *
+ * Record layout (48 bytes, little-endian):
+ *   0  status     byte   1 = active, 0 = dropped
+ *   1  grade      byte   Grade ordinal, -1 while ungraded
+ *   2  semester   byte   charged Semester ordinal, -1 when nothing is charged
+ *   3  credits    byte   charged credits
+ *   4  reserved   int
+ *   8  course     long   packed CourseCode
+ *   16 enrolled   long   enrollment wall-clock time as epoch milliseconds at UTC
+ *   24 studentId  byte + 23 bytes, UTF-8 length-prefixed
+ *
+ * Appends are serialized on the file; callers must not update one record
+ * from several threads at once.
+ */
+public class EnrollmentFile implements Closeable {
+    public static final int RECORD_SIZE = 48;
+    public static final int MAX_STUDENT_ID_BYTES = 23;
+
+    private static final int MAGIC = 0x43454E52; // "CENR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+
+    private static final int STATUS = 0;
+    private static final int GRADE = 1;
+    private static final int SEMESTER = 2;
+    private static final int CREDITS = 3;
+    private static final int COURSE = 8;
+    private static final int ENROLLED = 16;
+    private static final int STUDENT_ID = 24;
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments;
+    private volatile int size;
+
+    private EnrollmentFile(Path path, FileChannel channel, MappedByteBuffer header, int size) {
+        this.path = path;
+        this.channel = channel;
+        this.header = header;
+        this.segments = new MappedByteBuffer[0];
+        this.size = size;
+    }
+
+    /**
+     * Open the file, creating it when missing
+     * @throws IOException if the file exists but is not an enrollment file
+     */
+    public static EnrollmentFile open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, 0);
+                return new EnrollmentFile(path, channel, header, 0);
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not an enrollment file (or unsupported version): " + path);
+            }
+            int size = header.getInt(12);
+            if (size < 0 || HEADER_SIZE + (long) size * RECORD_SIZE > channel.size()) {
+                throw new IOException("Enrollment file is truncated: " + path);
+            }
+            return new EnrollmentFile(path, channel, header, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append an active, ungraded record with nothing charged
+     * @return the record number
+     */
+    public synchronized int append(String studentId, long courseCode, long enrolledAtMillis) {
+        byte[] id = studentId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_STUDENT_ID_BYTES) {
+            throw new IllegalArgumentException("Student ID too long for an enrollment record: " + studentId);
+        }
+        int record = size;
+        MappedByteBuffer segment = mapped(record);
+        int base = offset(record);
+        segment.put(base + STATUS, (byte) 1);
+        segment.put(base + GRADE, (byte) -1);
+        segment.put(base + SEMESTER, (byte) -1);
+        segment.put(base + CREDITS, (byte) 0);
+        segment.putLong(base + COURSE, courseCode);
+        segment.putLong(base + ENROLLED, enrolledAtMillis);
+        segment.put(base + STUDENT_ID, (byte) id.length);
+        segment.put(base + STUDENT_ID + 1, id);
+        size = record + 1;
+        header.putInt(12, size); // published after the record is complete
+        return record;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forget every record; the mapped space is reused by later appends
+     */
+    public synchronized void clear() {
+        size = 0;
+        header.putInt(12, 0);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Field access by record number
+
+    public boolean isActive(int record) {
+        return segment(record).get(offset(record) + STATUS) == 1;
+    }
+
+    public void setActive(int record, boolean active) {
+        segment(record).put(offset(record) + STATUS, (byte) (active ? 1 : 0));
+    }
+
+    public Grade getGrade(int record) {
+        int ordinal = segment(record).get(offset(record) + GRADE);
+        return ordinal < 0 ? null : GRADES[ordinal];
+    }
+
+    public void setGrade(int record, Grade grade) {
+        segment(record).put(offset(record) + GRADE, (byte) (grade == null ? -1 : grade.ordinal()));
+    }
+
+    public Semester getChargedSemester(int record) {
+        int ordinal = segment(record).get(offset(record) + SEMESTER);
+        return ordinal < 0 ? null : SEMESTERS[ordinal];
+    }
+
+    public int getChargedCredits(int record) {
+        return segment(record).get(offset(record) + CREDITS);
+    }
+
+    public void setCharge(int record, Semester semester, int credits) {
+        MappedByteBuffer segment = segment(record);
+        int base = offset(record);
+        segment.put(base + SEMESTER, (byte) (semester == null ? -1 : semester.ordinal()));
+        segment.put(base + CREDITS, (byte) (semester == null ? 0 : credits));
+    }
+
+    public long getCourseCode(int record) {
+        return segment(record).getLong(offset(record) + COURSE);
+    }
+
+    public long getEnrolledAt(int record) {
+        return segment(record).getLong(offset(record) + ENROLLED);
+    }
+
+    public String getStudentId(int record) {
+        MappedByteBuffer segment = segment(record);
+        int base = offset(record) + STUDENT_ID;
+        byte[] id = new byte[segment.get(base)];
+        segment.get(base + 1, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write dirty pages back to the file
+     */
+    public void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(int record) {
+        if (record < 0 || record >= size) {
+            throw new IndexOutOfBoundsException("No enrollment record " + record);
+        }
+        return mapped(record);
+    }
+
+    private MappedByteBuffer mapped(int record) {
+        int index = record >>> SEGMENT_BITS;
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        return mapSegment(index);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int index) {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        try {
+            MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+            for (int i = current.length; i <= index; i++) {
+                long position = HEADER_SIZE + (long) i * SEGMENT_RECORDS * RECORD_SIZE;
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) SEGMENT_RECORDS * RECORD_SIZE);
+                grown[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            segments = grown;
+            return grown[index];
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map enrollment file " + path, e);
+        }
+    }
+
+    private static int offset(int record) {
+        return (record & SEGMENT_MASK) * RECORD_SIZE;
+    }
+}
\ No newline at end of file
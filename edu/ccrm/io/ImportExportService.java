@@ -173,7 +173,7 @@ public class ImportExportService {
             "\"" + student.getFullName() + "\"", // Quote names that might have commas
             student.getEmail(),
             String.valueOf(student.isActive()),
-            String.valueOf(student.getEnrolledCourses().size()),
+            String.valueOf(student.enrolledCourseCount()),
             String.format("%.2f", student.calculateGPA()),
             student.getCreatedAt().format(dateFormatter)
         );
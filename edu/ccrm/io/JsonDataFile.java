@@ -0,0 +1,267 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The data.json backup format: courses, enrollments and students as JSON
+ * Records are written one at a time through JsonWriter and handed back one
+ * at a time by read(), so neither side holds more than a single record,
+ * however large the dataset. Enrollments come before students, so that a
+ * loader can attach them as each student arrives.
+ *
+ * {
+ *   "format": "ccrm-data",
+ *   "version": 1,
+ *   "courses": [ {"code", "title", "credits", "instructor", "semester", "department", "active"}, ... ],
+ *   "enrollments": [ {"studentId", "courseCode", "enrolledAt", "grade", "active"}, ... ],
+ *   "students": [ {"id", "regNo", "fullName", "email", "active"}, ... ]
+ * }
+ *
+ * Unknown members are skipped when reading.
+ */
+public final class JsonDataFile {
+    public static final String FILE_NAME = "data.json";
+
+    private static final String FORMAT = "ccrm-data";
+    private static final int VERSION = 1;
+
+    private JsonDataFile() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Receives each record as it is parsed
+     */
+    public interface Handler {
+        void course(Course course) throws IOException;
+        void enrollment(Enrollment enrollment) throws IOException;
+        void student(Student student) throws IOException;
+    }
+
+    /**
+     * Write the whole graph; out should be buffered
+     */
+    public static void write(Writer out, Iterable<Course> courses, Iterable<Enrollment> enrollments,
+                             Iterable<Student> students) throws IOException {
+        JsonWriter json = new JsonWriter(out, 2);
+        json.beginObject()
+            .name("format").value(FORMAT)
+            .name("version").value(VERSION);
+
+        json.name("courses").beginArray();
+        for (Course course : courses) {
+            json.beginObject()
+                .name("code").value(course.getCode())
+                .name("title").value(course.getTitle())
+                .name("credits").value(course.getCredits())
+                .name("instructor").value(course.getInstructor())
+                .name("semester").value(course.getSemester() == null ? null : course.getSemester().name())
+                .name("department").value(course.getDepartment())
+                .name("active").value(course.isActive())
+                .endObject();
+        }
+        json.endArray();
+
+        json.name("enrollments").beginArray();
+        for (Enrollment enrollment : enrollments) {
+            json.beginObject()
+                .name("studentId").value(enrollment.getStudentId())
+                .name("courseCode").value(enrollment.getCourseCode())
+                .name("enrolledAt").value(enrollment.getEnrollmentDate().toString())
+                .name("grade").value(enrollment.getGrade() == null ? null : enrollment.getGrade().name())
+                .name("active").value(enrollment.isActive())
+                .endObject();
+        }
+        json.endArray();
+
+        json.name("students").beginArray();
+        for (Student student : students) {
+            json.beginObject()
+                .name("id").value(student.getId())
+                .name("regNo").value(student.getRegNo())
+                .name("fullName").value(student.getFullName())
+                .name("email").value(student.getEmail())
+                .name("active").value(student.isActive())
+                .endObject();
+        }
+        json.endArray();
+
+        json.endObject();
+        json.flush();
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Parse a document, passing each record to the handler in file order
+     */
+    public static void read(Reader in, Handler handler) throws IOException {
+        JsonReader json = new JsonReader(in);
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            switch (name) {
+                case "format" -> {
+                    String format = json.nextString();
+                    if (!FORMAT.equals(format)) {
+                        throw new IOException("Not a CCRM data file: format " + format);
+                    }
+                }
+                case "version" -> {
+                    int version = json.nextInt();
+                    if (version != VERSION) {
+                        throw new IOException("Unsupported data file version " + version);
+                    }
+                }
+                case "courses" -> {
+                    json.beginArray();
+                    int index = 0;
+                    while (json.hasNext()) {
+                        handler.course(readCourse(json, index++));
+                    }
+                    json.endArray();
+                }
+                case "enrollments" -> {
+                    json.beginArray();
+                    int index = 0;
+                    while (json.hasNext()) {
+                        handler.enrollment(readEnrollment(json, index++));
+                    }
+                    json.endArray();
+                }
+                case "students" -> {
+                    json.beginArray();
+                    int index = 0;
+                    while (json.hasNext()) {
+                        handler.student(readStudent(json, index++));
+                    }
+                    json.endArray();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        json.peek(); // only whitespace may follow
+    }
+
+    private static Course readCourse(JsonReader json, int index) throws IOException {
+        String code = null;
+        String title = null;
+        String instructor = null;
+        String department = null;
+        Semester semester = null;
+        int credits = 0;
+        boolean active = true;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "code" -> code = json.nextString();
+                case "title" -> title = json.nextStringOrNull();
+                case "credits" -> credits = json.nextInt();
+                case "instructor" -> instructor = json.nextStringOrNull();
+                case "semester" -> {
+                    String value = json.nextStringOrNull();
+                    semester = value == null ? null : enumValue(Semester.class, value, "course", index);
+                }
+                case "department" -> department = json.nextStringOrNull();
+                case "active" -> active = json.nextBoolean();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        require(code, "code", "course", index);
+        try {
+            Course course = new Course.Builder()
+                .setCode(code)
+                .setTitle(title)
+                .setCredits(credits)
+                .setInstructor(instructor)
+                .setSemester(semester)
+                .setDepartment(department)
+                .build();
+            course.setActive(active);
+            return course;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid " + where("course", index) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Enrollment readEnrollment(JsonReader json, int index) throws IOException {
+        String studentId = null;
+        String courseCode = null;
+        String enrolledAt = null;
+        Grade grade = null;
+        boolean active = true;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "studentId" -> studentId = json.nextString();
+                case "courseCode" -> courseCode = json.nextString();
+                case "enrolledAt" -> enrolledAt = json.nextString();
+                case "grade" -> {
+                    String value = json.nextStringOrNull();
+                    grade = value == null ? null : enumValue(Grade.class, value, "enrollment", index);
+                }
+                case "active" -> active = json.nextBoolean();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        require(studentId, "studentId", "enrollment", index);
+        require(courseCode, "courseCode", "enrollment", index);
+        require(enrolledAt, "enrolledAt", "enrollment", index);
+        try {
+            return new Enrollment(studentId, CourseCode.parse(courseCode), LocalDateTime.parse(enrolledAt), grade, active);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IOException("Invalid " + where("enrollment", index) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Student readStudent(JsonReader json, int index) throws IOException {
+        String id = null;
+        String regNo = null;
+        String fullName = null;
+        String email = null;
+        boolean active = true;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> id = json.nextString();
+                case "regNo" -> regNo = json.nextStringOrNull();
+                case "fullName" -> fullName = json.nextStringOrNull();
+                case "email" -> email = json.nextStringOrNull();
+                case "active" -> active = json.nextBoolean();
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        require(id, "id", "student", index);
+        Student student = new Student(id, regNo, fullName, email);
+        student.setActive(active);
+        return student;
+    }
+
+    private static void require(String value, String field, String kind, int index) throws IOException {
+        if (value == null) {
+            throw new IOException(where(kind, index) + " has no " + field);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value, String kind, int index)
+            throws IOException {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + value + " in " + where(kind, index));
+        }
+    }
+
+    private static String where(String kind, int index) {
+        return kind + " record " + (index + 1);
+    }
+}
\ No newline at end of file
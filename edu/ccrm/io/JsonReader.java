@@ -0,0 +1,380 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON pull parser
+ * The caller walks the document token by token (beginObject, nextName,
+ * nextString, ...) while the parser reads the source through a fixed
+ * 64 KiB buffer, so memory use does not grow with the document. Structure
+ * is checked as tokens are consumed; malformed input raises an IOException
+ * naming the line and column.
+ */
+public class JsonReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // What the parser expects next within each open structure
+    private static final int DOCUMENT_START = 0;
+    private static final int DOCUMENT_DONE = 1;
+    private static final int ARRAY_START = 2;
+    private static final int ARRAY_NEXT = 3;
+    private static final int OBJECT_START = 4;
+    private static final int OBJECT_VALUE = 5;
+    private static final int OBJECT_NEXT = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int pos;
+    private int limit;
+    private int line = 1;
+    private long lineStart;
+    private long consumed; // chars before buffer[0]
+
+    private int[] stack = new int[16];
+    private int depth = 1;
+    private Token peeked;
+    private final StringBuilder scratch = new StringBuilder();
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        stack[0] = DOCUMENT_START;
+    }
+
+    /**
+     * The type of the next token, without consuming it
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[depth - 1]) {
+            case DOCUMENT_START -> {
+                stack[depth - 1] = DOCUMENT_DONE;
+                return peeked = valueToken(nextNonWhitespace());
+            }
+            case DOCUMENT_DONE -> {
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected content after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+            case ARRAY_START, ARRAY_NEXT -> {
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (stack[depth - 1] == ARRAY_NEXT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or ']'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                stack[depth - 1] = ARRAY_NEXT;
+                return peeked = valueToken(c);
+            }
+            case OBJECT_START, OBJECT_NEXT -> {
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (stack[depth - 1] == OBJECT_NEXT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a member name");
+                }
+                return peeked = Token.NAME;
+            }
+            case OBJECT_VALUE -> {
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[depth - 1] = OBJECT_NEXT;
+                return peeked = valueToken(nextNonWhitespace());
+            }
+            default -> throw new IllegalStateException("Corrupt parser state");
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(OBJECT_START);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(ARRAY_START);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        stack[depth - 1] = OBJECT_VALUE;
+        return readString();
+    }
+
+    public String nextString() throws IOException {
+        expect(Token.STRING);
+        return readString();
+    }
+
+    /**
+     * A string, or null for a JSON null
+     */
+    public String nextStringOrNull() throws IOException {
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        return nextString();
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        if (buffer[pos - 1] == 't') {
+            literal("rue");
+            return true;
+        }
+        literal("alse");
+        return false;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        literal("ull");
+    }
+
+    public long nextLong() throws IOException {
+        String number = readNumber();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + number);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw syntaxError("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    public double nextDouble() throws IOException {
+        String number = readNumber();
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number " + number);
+        }
+    }
+
+    /**
+     * Skip the next value, including everything nested in it
+     */
+    public void skipValue() throws IOException {
+        int nested = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> { beginObject(); nested++; }
+                case BEGIN_ARRAY -> { beginArray(); nested++; }
+                case END_OBJECT -> { endObject(); nested--; }
+                case END_ARRAY -> { endArray(); nested--; }
+                case NAME -> nextName();
+                case STRING -> nextString();
+                case NUMBER -> readNumber();
+                case BOOLEAN -> nextBoolean();
+                case NULL -> nextNull();
+                case END_DOCUMENT -> throw syntaxError("Unexpected end of document");
+            }
+        } while (nested > 0);
+    }
+
+    /**
+     * Position of the next unread character, for error messages
+     */
+    public String location() {
+        return "line " + line + " column " + (consumed + pos - lineStart + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        Token actual = peek();
+        if (actual != token) {
+            throw syntaxError("Expected " + token + " but was " + actual);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    // Classify a value from its first character, which stays consumed except for
+    // numbers; nothing refills the buffer before the value is read, so nextBoolean
+    // can look back at it
+    private Token valueToken(int c) throws IOException {
+        switch (c) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't': case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            case -1: throw syntaxError("Unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos++];
+            if (c == '\n') {
+                line++;
+                lineStart = consumed + pos;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        consumed += pos;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    // Reads up to the closing quote; the opening quote has been consumed
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"') {
+                    scratch.append(buffer, start, pos - start);
+                    pos++;
+                    return scratch.toString();
+                }
+                if (c == '\\') {
+                    scratch.append(buffer, start, pos - start);
+                    pos++;
+                    scratch.append(readEscape());
+                    start = pos;
+                    continue;
+                }
+                if (c < 0x20) {
+                    throw syntaxError("Unescaped control character in string");
+                }
+                pos++;
+            }
+            scratch.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case '"': case '\\': case '/': return c;
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed \\u escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape \\" + c);
+        }
+    }
+
+    private char nextChar() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Unexpected end of document");
+        }
+        return buffer[pos++];
+    }
+
+    private void literal(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (pos == limit && !fill() || buffer[pos++] != rest.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    private String readNumber() throws IOException {
+        expect(Token.NUMBER);
+        scratch.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                scratch.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return scratch.toString();
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON at " + location() + ": " + message);
+    }
+}
\ No newline at end of file
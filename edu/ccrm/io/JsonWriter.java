@@ -0,0 +1,244 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer
+ * Tokens pass through a small private buffer to the underlying Writer as
+ * they are written, so a document of any size is produced without being
+ * built in memory, and the Writer sees one call per 8 KiB rather than one
+ * per token. Only
+ * structures up to prettyDepth levels deep are broken across lines, which
+ * keeps one record per line in a large array.
+ */
+public class JsonWriter implements Closeable, Flushable {
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int DANGLING_NAME = 6;
+
+    private final Writer out;
+    private final char[] buffer = new char[8192];
+    private int buffered;
+    private final int prettyDepth;
+    private int[] stack = new int[16];
+    private int depth = 1;
+
+    public JsonWriter(Writer out) {
+        this(out, 0);
+    }
+
+    /**
+     * @param prettyDepth nesting levels whose members start on their own indented line
+     */
+    public JsonWriter(Writer out, int prettyDepth) {
+        this.out = out;
+        this.prettyDepth = prettyDepth;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        int scope = stack[depth - 1];
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Name outside an object: " + name);
+        }
+        if (scope == NONEMPTY_OBJECT) {
+            write(',');
+        }
+        newline(depth - 1, depth - 1);
+        stack[depth - 1] = DANGLING_NAME;
+        string(name);
+        write(':');
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON numbers must be finite: " + value);
+        }
+        beforeValue();
+        write(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Close the underlying writer; the document must be complete
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        out.close();
+        if (depth > 1 || stack[0] != NONEMPTY_DOCUMENT) {
+            throw new IllegalStateException("Incomplete JSON document");
+        }
+    }
+
+    private JsonWriter open(int empty, char bracket) throws IOException {
+        beforeValue();
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = empty;
+        write(bracket);
+        return this;
+    }
+
+    private JsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope != empty && scope != nonempty) {
+            throw new IllegalStateException("Nesting problem closing " + bracket);
+        }
+        depth--;
+        if (scope == nonempty) {
+            newline(depth, depth - 1);
+        }
+        write(bracket);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT -> stack[depth - 1] = NONEMPTY_DOCUMENT;
+            case EMPTY_ARRAY -> {
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                newline(depth - 1, depth - 1);
+            }
+            case NONEMPTY_ARRAY -> {
+                write(',');
+                newline(depth - 1, depth - 1);
+            }
+            case DANGLING_NAME -> stack[depth - 1] = NONEMPTY_OBJECT;
+            case NONEMPTY_DOCUMENT -> throw new IllegalStateException("JSON document already has a value");
+            default -> throw new IllegalStateException("Object member needs a name first");
+        }
+    }
+
+    // Line break before a member (or the closing bracket) of the structure at the given level
+    private void newline(int level, int indent) throws IOException {
+        if (level > 0 && level <= prettyDepth) {
+            write('\n');
+            for (int i = 0; i < indent; i++) {
+                write("  ");
+            }
+        }
+    }
+
+    // Copies unescaped runs in bulk and escapes quotes, backslashes and control characters
+    private void string(String value) throws IOException {
+        write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                escape = switch (c) {
+                    case '\n' -> "\\n";
+                    case '\r' -> "\\r";
+                    case '\t' -> "\\t";
+                    case '\b' -> "\\b";
+                    case '\f' -> "\\f";
+                    default -> String.format("\\u%04x", (int) c);
+                };
+            } else {
+                continue;
+            }
+            write(value, start, i);
+            write(escape);
+            start = i + 1;
+        }
+        write(value, start, length);
+        write('"');
+    }
+
+    private void write(char c) throws IOException {
+        if (buffered == buffer.length) {
+            drain();
+        }
+        buffer[buffered++] = c;
+    }
+
+    private void write(String text) throws IOException {
+        write(text, 0, text.length());
+    }
+
+    private void write(String text, int from, int to) throws IOException {
+        while (from < to) {
+            if (buffered == buffer.length) {
+                drain();
+            }
+            int n = Math.min(to - from, buffer.length - buffered);
+            text.getChars(from, from + n, buffer, buffered);
+            buffered += n;
+            from += n;
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, buffered);
+        buffered = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+package edu.ccrm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream that compresses fixed-size blocks on a worker pool
+ * Data is cut into blocks that are deflated independently, each primed
+ * with the last 32 KiB of the block before it, and ended with a sync flush
+ * so the pieces join into one ordinary gzip member (the approach of pigz).
+ * Blocks are written in order; at most two per thread are in flight, so
+ * memory stays bounded however much is written. The CRC is computed on the
+ * writing thread. Any gzip reader, including GZIPInputStream, can read the
+ * result.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 128 << 10;
+
+    private static final int DICTIONARY_SIZE = 32 << 10;
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final OutputStream out;
+    private final int level;
+    private final int blockSize;
+    private final ExecutorService workers; // null when compressing on the calling thread
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int filled;
+    private byte[] dictionary;
+    private long bytesIn;
+    private long bytesOut;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+        this(out, threads, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param threads compression threads; 1 compresses on the calling thread
+     * @param level Deflater compression level
+     * @param blockSize uncompressed bytes per block, at least 32 KiB
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads, int level, int blockSize) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE + ": " + blockSize);
+        }
+        this.out = out;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.maxInFlight = 2 * threads;
+        this.workers = threads == 1 ? null : Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "gzip-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            out.write(HEADER);
+        } catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+        bytesOut = HEADER.length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        crc.update(b, off, len);
+        bytesIn += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - filled);
+            System.arraycopy(b, off, block, filled, n);
+            filled += n;
+            off += n;
+            len -= n;
+            if (filled == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Write out every block compressed so far; a partly filled block is kept
+     * so flushing does not cost compression ratio
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            writeOldest();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            byte[] trailer = new byte[8];
+            writeIntLE(trailer, 0, (int) crc.getValue());
+            writeIntLE(trailer, 4, (int) bytesIn);
+            out.write(trailer);
+            bytesOut += trailer.length;
+        } finally {
+            shutdown();
+            out.close();
+        }
+    }
+
+    /**
+     * Uncompressed bytes written so far
+     */
+    public long getBytesIn() { return bytesIn; }
+
+    /**
+     * Compressed bytes, including the gzip header and trailer, passed on so far
+     */
+    public long getBytesOut() { return bytesOut; }
+
+    private void submit(boolean last) throws IOException {
+        byte[] input = block;
+        int length = filled;
+        byte[] primer = dictionary;
+        if (length >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+        }
+        block = new byte[blockSize];
+        filled = 0;
+
+        if (workers == null) {
+            byte[] compressed = deflate(input, length, primer, last);
+            out.write(compressed);
+            bytesOut += compressed.length;
+            return;
+        }
+        while (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+        inFlight.addLast(workers.submit(() -> deflate(input, length, primer, last)));
+    }
+
+    private byte[] deflate(byte[] input, int length, byte[] primer, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (primer != null) {
+                deflater.setDictionary(primer);
+            }
+            deflater.setInput(input, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[Math.max(512, length / 4)];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // SYNC_FLUSH has emitted everything once the output buffer is not filled
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        Future<byte[]> oldest = inFlight.removeFirst();
+        byte[] compressed;
+        try {
+            compressed = oldest.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Block compression failed", e.getCause());
+        }
+        out.write(compressed);
+        bytesOut += compressed.length;
+    }
+
+    private void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void writeIntLE(byte[] b, int off, int value) {
+        b[off] = (byte) value;
+        b[off + 1] = (byte) (value >>> 8);
+        b[off + 2] = (byte) (value >>> 16);
+        b[off + 3] = (byte) (value >>> 24);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,326 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of courses, students and enrollments
+ * Every string is stored once in a string table and referenced by index;
+ * records are fixed-width, and the reader maps the file and decodes each
+ * section in one sequential pass. Restoring is therefore linear in the
+ * number of records; the derived indexes are rebuilt, not stored.
+ *
+ * Layout (big-endian):
+ *   header      64 bytes: magic, version, created millis, per-section
+ *               counts and offsets, CRC32 of everything after the header
+ *   strings     int offset per string, then each string as int length + UTF-8
+ *   courses     24 bytes: packed code, title, instructor, department,
+ *               credits, semester, active
+ *   students    20 bytes: id, regNo, name, email, active
+ *   enrollments 24 bytes: student id, grade, active, packed course, enrolled millis
+ *
+ * String references are table indexes, -1 for null. Files are written to a
+ * temporary sibling and moved into place, so a crash never leaves half a snapshot.
+ */
+public class SnapshotFile {
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COURSE_SIZE = 24;
+    private static final int STUDENT_SIZE = 20;
+    private static final int ENROLLMENT_SIZE = 24;
+    private static final int NO_STRING = -1;
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private final Path path;
+    private final MappedByteBuffer map;
+    private final long createdAt;
+    private final int stringCount;
+    private final String[] decoded;
+    private final int courseCount;
+    private final int studentCount;
+    private final int enrollmentCount;
+    private final int courseOffset;
+    private final int studentOffset;
+    private final int enrollmentOffset;
+
+    private SnapshotFile(Path path, MappedByteBuffer map) {
+        this.path = path;
+        this.map = map;
+        this.createdAt = map.getLong(8);
+        this.stringCount = map.getInt(16);
+        this.courseCount = map.getInt(20);
+        this.studentCount = map.getInt(24);
+        this.enrollmentCount = map.getInt(28);
+        this.courseOffset = map.getInt(32);
+        this.studentOffset = map.getInt(36);
+        this.enrollmentOffset = map.getInt(40);
+        this.decoded = new String[stringCount];
+    }
+
+    public static Writer writer() {
+        return new Writer();
+    }
+
+    /**
+     * Map a snapshot and verify its checksum; no records are decoded
+     * @throws IOException if the file is not a snapshot, is truncated or is corrupt
+     */
+    public static SnapshotFile open(Path path) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot (bad size " + size + "): " + path);
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a snapshot (or unsupported version): " + path);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(map.slice(HEADER_SIZE, map.capacity() - HEADER_SIZE));
+        if ((int) crc.getValue() != map.getInt(44)) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+        SnapshotFile snapshot = new SnapshotFile(path, map);
+        long end = (long) snapshot.enrollmentOffset + (long) snapshot.enrollmentCount * ENROLLMENT_SIZE;
+        if (end != map.capacity()) {
+            throw new IOException("Snapshot sections do not match the file size: " + path);
+        }
+        return snapshot;
+    }
+
+    public Path getPath() { return path; }
+
+    public LocalDateTime getCreatedAt() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAt), ZoneOffset.UTC);
+    }
+
+    public int getCourseCount() { return courseCount; }
+    public int getStudentCount() { return studentCount; }
+    public int getEnrollmentCount() { return enrollmentCount; }
+
+    /**
+     * Decode the courses in snapshot order, handing each to the consumer
+     */
+    public void readCourses(Consumer<Course> consumer) {
+        for (int base = courseOffset, i = 0; i < courseCount; i++, base += COURSE_SIZE) {
+            Course course = new Course.Builder()
+                .setCode(CourseCode.fromPacked(map.getLong(base)).getFullCode())
+                .setTitle(string(map.getInt(base + 8)))
+                .setInstructor(string(map.getInt(base + 12)))
+                .setDepartment(string(map.getInt(base + 16)))
+                .setCredits(map.get(base + 20))
+                .setSemester(SEMESTERS[map.get(base + 21)])
+                .build();
+            course.setActive(map.get(base + 22) == 1);
+            consumer.accept(course);
+        }
+    }
+
+    /**
+     * Decode the students in snapshot order, handing each to the consumer
+     */
+    public void readStudents(Consumer<Student> consumer) {
+        for (int base = studentOffset, i = 0; i < studentCount; i++, base += STUDENT_SIZE) {
+            Student student = new Student(string(map.getInt(base)), string(map.getInt(base + 4)),
+                                          string(map.getInt(base + 8)), string(map.getInt(base + 12)));
+            student.setActive(map.get(base + 16) == 1);
+            consumer.accept(student);
+        }
+    }
+
+    /**
+     * Decode the enrollments in snapshot order, handing each to the consumer
+     */
+    public void readEnrollments(Consumer<Enrollment> consumer) {
+        for (int base = enrollmentOffset, i = 0; i < enrollmentCount; i++, base += ENROLLMENT_SIZE) {
+            int grade = map.get(base + 4);
+            consumer.accept(new Enrollment(string(map.getInt(base)),
+                                           CourseCode.fromPacked(map.getLong(base + 8)),
+                                           LocalDateTime.ofInstant(Instant.ofEpochMilli(map.getLong(base + 16)), ZoneOffset.UTC),
+                                           grade < 0 ? null : GRADES[grade],
+                                           map.get(base + 5) == 1));
+        }
+    }
+
+    // Each string is decoded once, on first use; a racing duplicate decode is harmless
+    private String string(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        String value = decoded[index];
+        if (value == null) {
+            int at = map.getInt(HEADER_SIZE + index * 4);
+            byte[] bytes = new byte[map.getInt(at)];
+            map.get(at + 4, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            decoded[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Collects entities and writes them as one snapshot file
+     */
+    public static class Writer {
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Buffer courses = new Buffer();
+        private final Buffer students = new Buffer();
+        private final Buffer enrollments = new Buffer();
+        private int courseCount;
+        private int studentCount;
+        private int enrollmentCount;
+
+        private Writer() {
+        }
+
+        public Writer addCourse(Course course) {
+            ByteBuffer record = courses.next(COURSE_SIZE);
+            record.putLong(course.getCourseCode().getPacked())
+                  .putInt(stringId(course.getTitle()))
+                  .putInt(stringId(course.getInstructor()))
+                  .putInt(stringId(course.getDepartment()))
+                  .put((byte) course.getCredits())
+                  .put((byte) course.getSemester().ordinal())
+                  .put((byte) (course.isActive() ? 1 : 0));
+            courseCount++;
+            return this;
+        }
+
+        public Writer addStudent(Student student) {
+            ByteBuffer record = students.next(STUDENT_SIZE);
+            record.putInt(stringId(student.getId()))
+                  .putInt(stringId(student.getRegNo()))
+                  .putInt(stringId(student.getFullName()))
+                  .putInt(stringId(student.getEmail()))
+                  .put((byte) (student.isActive() ? 1 : 0));
+            studentCount++;
+            return this;
+        }
+
+        public Writer addEnrollment(Enrollment enrollment) {
+            ByteBuffer record = enrollments.next(ENROLLMENT_SIZE);
+            Grade grade = enrollment.getGrade();
+            record.putInt(stringId(enrollment.getStudentId()))
+                  .put((byte) (grade == null ? -1 : grade.ordinal()))
+                  .put((byte) (enrollment.isActive() ? 1 : 0))
+                  .putShort((short) 0)
+                  .putLong(CourseCode.parse(enrollment.getCourseCode()).getPacked())
+                  .putLong(enrollment.getEnrollmentDate().toInstant(ZoneOffset.UTC).toEpochMilli());
+            enrollmentCount++;
+            return this;
+        }
+
+        /**
+         * Write the snapshot to a temporary sibling, force it and move it over the target
+         */
+        public void write(Path target) throws IOException {
+            ByteBuffer table = ByteBuffer.allocate(strings.size() * 4);
+            Buffer data = new Buffer();
+            int dataStart = HEADER_SIZE + table.capacity();
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                table.putInt(dataStart + data.size());
+                data.next(4 + bytes.length).putInt(bytes.length).put(bytes);
+            }
+            long courseOffset = (long) dataStart + data.size();
+            long studentOffset = courseOffset + courses.size();
+            long enrollmentOffset = studentOffset + students.size();
+            if (enrollmentOffset + enrollments.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB is not supported");
+            }
+            ByteBuffer[] body = { table.flip(), data.contents(), courses.contents(), students.contents(), enrollments.contents() };
+            CRC32 crc = new CRC32();
+            for (ByteBuffer section : body) {
+                crc.update(section.duplicate());
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                .putInt(strings.size()).putInt(courseCount).putInt(studentCount).putInt(enrollmentCount)
+                .putInt((int) courseOffset).putInt((int) studentOffset).putInt((int) enrollmentOffset)
+                .putInt((int) crc.getValue());
+            header.clear();
+
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, header);
+                for (ByteBuffer section : body) {
+                    writeFully(channel, section);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private int stringId(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            return stringIds.computeIfAbsent(value, v -> {
+                strings.add(v);
+                return strings.size() - 1;
+            });
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Growable byte buffer handing out fixed-size record slots
+    private static final class Buffer {
+        private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+        ByteBuffer next(int length) {
+            if (bytes.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(bytes.capacity() * 2, bytes.position() + length));
+                bytes.flip();
+                grown.put(bytes);
+                bytes = grown;
+            }
+            ByteBuffer slot = bytes.slice(bytes.position(), length);
+            bytes.position(bytes.position() + length);
+            return slot;
+        }
+
+        int size() {
+            return bytes.position();
+        }
+
+        ByteBuffer contents() {
+            return bytes.duplicate().flip();
+        }
+    }
+}
\ No newline at end of file
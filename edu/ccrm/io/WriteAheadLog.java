@@ -0,0 +1,448 @@
+package edu.ccrm.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of typed records with group commit
+ * Appenders copy their record into a shared buffer; whichever thread syncs
+ * next writes everything buffered and forces it with one fsync, so
+ * concurrent committers share the cost of a single disk flush.
+ *
+ * Record framing (big-endian):
+ *   length  int    bytes of type + payload
+ *   crc     int    CRC32 of type + payload
+ *   type    byte
+ *   payload length - 1 bytes
+ *
+ * A torn or corrupt tail left by a crash is cut off when the log is opened.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * When appended records are forced to disk
+     */
+    public enum SyncPolicy {
+        PER_OP,   // append returns once its record is durable
+        BATCHED,  // fsync every batchRecords appends, or on sync()
+        INTERVAL  // fsync from a background thread every interval
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void record(byte type, DataInputStream payload) throws IOException;
+    }
+
+    public static final int DEFAULT_BATCH_RECORDS = 256;
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(100);
+
+    private static final int MAGIC = 0x4357414C; // "CWAL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int FRAME_HEADER = 8;
+    private static final int MAX_RECORD = 1 << 20;
+
+    private final Path path;
+    private final SyncPolicy policy;
+    private final int batchRecords;
+    private final ScheduledExecutorService flusher;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private FileChannel channel; // replaced by truncate(long)
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingRecords;
+    private long appended;  // records accepted
+    private long durable;   // records forced to disk
+    private long end;       // file offset after the last durable record
+    private long syncs;
+    private boolean syncing;  // a flush or truncate owns the file
+    private boolean closed;
+    private IOException failure;
+
+    private WriteAheadLog(Path path, FileChannel channel, SyncPolicy policy, int batchRecords,
+                          Duration interval, long end, long records) {
+        this.path = path;
+        this.channel = channel;
+        this.policy = policy;
+        this.batchRecords = batchRecords;
+        this.end = end;
+        this.appended = records;
+        this.durable = records;
+        if (policy == SyncPolicy.INTERVAL) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = Math.max(1, interval.toMillis());
+            flusher.scheduleWithFixedDelay(this::syncQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    public static WriteAheadLog open(Path path, SyncPolicy policy) throws IOException {
+        return open(path, policy, DEFAULT_BATCH_RECORDS, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Open the log, creating it when missing and cutting off a torn tail
+     * @param batchRecords appends per fsync under BATCHED
+     * @param interval time between fsyncs under INTERVAL
+     * @throws IOException if the file exists but is not a log
+     */
+    public static WriteAheadLog open(Path path, SyncPolicy policy, int batchRecords, Duration interval)
+            throws IOException {
+        if (batchRecords < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchRecords);
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                writeFully(channel, header.flip(), 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Not a write-ahead log (or unsupported version): " + path);
+                }
+            }
+            long[] tail = scan(channel, null);
+            if (tail[0] < channel.size()) {
+                channel.truncate(tail[0]);
+                channel.force(true);
+            }
+            return new WriteAheadLog(path, channel, policy, batchRecords, interval, tail[0], tail[1]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append one record; under PER_OP this returns once it is durable
+     * @return the record's sequence number
+     */
+    public long append(byte type, byte[] payload) throws IOException {
+        if (payload.length >= MAX_RECORD) {
+            throw new IllegalArgumentException("Log record too large: " + payload.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + 1 + payload.length)
+                .putInt(1 + payload.length)
+                .putInt((int) crc.getValue())
+                .put(type)
+                .put(payload);
+        long lsn;
+        boolean syncNow;
+        synchronized (lock) {
+            checkUsable();
+            pending.write(frame.array(), 0, frame.capacity());
+            pendingRecords++;
+            lsn = ++appended;
+            syncNow = policy == SyncPolicy.PER_OP
+                    || (policy == SyncPolicy.BATCHED && pendingRecords >= batchRecords);
+        }
+        if (syncNow) {
+            awaitDurable(lsn);
+        }
+        return lsn;
+    }
+
+    /**
+     * Force every record appended so far to disk
+     */
+    public void sync() throws IOException {
+        long lsn;
+        synchronized (lock) {
+            lsn = appended;
+        }
+        awaitDurable(lsn);
+    }
+
+    /**
+     * Feed every durable record, oldest first, to the handler
+     */
+    public void replay(RecordHandler handler) throws IOException {
+        sync();
+        FileChannel current;
+        synchronized (lock) {
+            current = channel;
+        }
+        scan(current, handler);
+    }
+
+    /**
+     * Force every record appended so far to disk
+     * @return the file offset after them, for truncate(long); exact only
+     *         while no other thread appends
+     */
+    public long mark() throws IOException {
+        sync();
+        synchronized (lock) {
+            while (syncing) {
+                waitForSync();
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Drop the records before a mark(), keeping every later one. The kept
+     * tail is copied to a temporary sibling that is forced and moved over
+     * the log, so a crash leaves either the old log or the new one.
+     */
+    public void truncate(long upTo) throws IOException {
+        long to;
+        FileChannel old;
+        synchronized (lock) {
+            checkUsable();
+            while (syncing) {
+                waitForSync();
+            }
+            if (upTo < HEADER_SIZE || upTo > end) {
+                throw new IllegalArgumentException("Not a log position: " + upTo);
+            }
+            // Flushes wait until the new file is in place
+            syncing = true;
+            to = end;
+            old = channel;
+        }
+        FileChannel replacement;
+        boolean moved = false;
+        try {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                writeFully(out, header.flip(), 0);
+                long copied = 0;
+                while (copied < to - upTo) {
+                    out.position(HEADER_SIZE + copied);
+                    copied += old.transferTo(upTo + copied, to - upTo - copied, out);
+                }
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+            replacement = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            synchronized (lock) {
+                // Once moved, the old channel no longer names the log
+                if (moved) {
+                    failure = e;
+                }
+                syncing = false;
+                lock.notifyAll();
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            channel = replacement;
+            end = HEADER_SIZE + (to - upTo);
+            syncing = false;
+            lock.notifyAll();
+        }
+        old.close();
+    }
+
+    /**
+     * Drop every record, e.g. once a snapshot covers them
+     */
+    public void truncate() throws IOException {
+        sync();
+        synchronized (lock) {
+            while (syncing) {
+                waitForSync();
+            }
+            checkUsable();
+            channel.truncate(HEADER_SIZE);
+            channel.force(true);
+            end = HEADER_SIZE;
+        }
+    }
+
+    public SyncPolicy getPolicy() { return policy; }
+    public Path getPath() { return path; }
+
+    /**
+     * Records appended since the log was opened, plus those found on disk
+     */
+    public long getAppendedRecords() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /**
+     * Number of fsyncs issued since the log was opened
+     */
+    public long getSyncCount() {
+        synchronized (lock) {
+            return syncs;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        try {
+            sync();
+        } finally {
+            FileChannel current;
+            synchronized (lock) {
+                closed = true;
+                current = channel;
+            }
+            current.close();
+        }
+    }
+
+    /**
+     * Group commit: the first waiter becomes the leader and flushes the whole
+     * buffer; waiters whose records were in that batch return without an fsync
+     */
+    private void awaitDurable(long lsn) throws IOException {
+        while (true) {
+            byte[] batch;
+            long upTo;
+            long position;
+            FileChannel target;
+            synchronized (lock) {
+                while (syncing && durable < lsn) {
+                    waitForSync();
+                }
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed: " + path, failure);
+                }
+                if (durable >= lsn) {
+                    return;
+                }
+                syncing = true;
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream(Math.max(32, batch.length));
+                pendingRecords = 0;
+                upTo = appended;
+                position = end;
+                target = channel;
+            }
+            try {
+                writeFully(target, ByteBuffer.wrap(batch), position);
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    syncing = false;
+                    lock.notifyAll();
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                end = position + batch.length;
+                durable = upTo;
+                syncs++;
+                syncing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void waitForSync() throws InterruptedIOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for log sync");
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // Kept in failure; the next append reports it
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed: " + path);
+        }
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed: " + path, failure);
+        }
+    }
+
+    /**
+     * Walk the records after the header, stopping at the first torn or corrupt one
+     * @return { offset after the last valid record, number of valid records }
+     */
+    private static long[] scan(FileChannel channel, RecordHandler handler) throws IOException {
+        long offset = HEADER_SIZE;
+        long records = 0;
+        channel.position(HEADER_SIZE);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] body;
+            int checksum;
+            try {
+                int length = in.readInt();
+                if (length < 1 || length > MAX_RECORD) {
+                    break;
+                }
+                checksum = in.readInt();
+                body = new byte[length];
+                in.readFully(body);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (handler != null) {
+                handler.record(body[0], new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1)));
+            }
+            offset += FRAME_HEADER + body.length;
+            records++;
+        }
+        return new long[] { offset, records };
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,259 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+import edu.ccrm.util.SymbolTable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Struct-of-arrays projection of students and enrollments for analytics
+ * Every column is a primitive array, so aggregate scans are tight loops
+ * over contiguous memory instead of walks over Student and Enrollment objects.
+ *
+ * Rows live in fixed-size chunks that are never copied: enrollment rows are
+ * allocated from an atomic counter, and a chunk is published in a volatile
+ * directory the first time a row needs it, so only that takes a lock.
+ * Student columns are indexed by student symbol id and course columns by
+ * course symbol id. Each row is written by one student's lock holder, so
+ * writes to different rows never contend.
+ *
+ * Scans take no lock and see a recent state: a write in flight may be
+ * missed, and a row that is allocated but not yet written reads as an
+ * inactive, ungraded enrollment.
+ */
+class ColumnarStore {
+    // Grades are stored as ordinal + 1, so a zeroed row reads as ungraded
+    static final byte UNGRADED = 0;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int ID_CHUNK_BITS = 10;
+    private static final int ID_CHUNK_SIZE = 1 << ID_CHUNK_BITS;
+    private static final int ID_CHUNK_MASK = ID_CHUNK_SIZE - 1;
+    private static final int GRADES = Grade.values().length;
+
+    // Enrollment rows, one per enrollment ever added; a row is active while its credits are charged
+    private final AtomicInteger rows = new AtomicInteger();
+    private volatile RowChunk[] rowChunks = new RowChunk[0];
+
+    // Student columns, by student symbol id
+    private volatile StudentChunk[] studentChunks = new StudentChunk[0];
+
+    // Course columns, by course symbol id
+    private volatile int[][] courseDepartment = new int[0][];
+
+    /**
+     * Append an active, ungraded enrollment
+     * @return the row number, used to address the row later
+     */
+    public int appendEnrollment(int course, int credits) {
+        int row = rows.getAndIncrement();
+        RowChunk chunk = rowChunk(row);
+        int offset = row & CHUNK_MASK;
+        chunk.course[offset] = course;
+        chunk.credits[offset] = (byte) credits;
+        chunk.active[offset] = true;
+        return row;
+    }
+
+    public void setActive(int row, boolean active) {
+        rowChunk(row).active[row & CHUNK_MASK] = active;
+    }
+
+    public void setGrade(int row, Grade grade) {
+        rowChunk(row).grade[row & CHUNK_MASK] = grade == null ? UNGRADED : (byte) (grade.ordinal() + 1);
+    }
+
+    public void setCredits(int row, int credits) {
+        rowChunk(row).credits[row & CHUNK_MASK] = (byte) credits;
+    }
+
+    public void updateStudent(int student, boolean active, double gpa) {
+        StudentChunk chunk = studentChunk(student);
+        chunk.active[student & ID_CHUNK_MASK] = active;
+        chunk.gpa[student & ID_CHUNK_MASK] = gpa;
+    }
+
+    public void setCourseDepartment(int course, int department) {
+        courseChunk(course)[course & ID_CHUNK_MASK] = department;
+    }
+
+    public int size() {
+        return rows.get();
+    }
+
+    /**
+     * Not atomic with respect to concurrent writes
+     */
+    public synchronized void clear() {
+        rowChunks = new RowChunk[0];
+        rows.set(0);
+        studentChunks = new StudentChunk[0];
+        courseDepartment = new int[0][];
+    }
+
+    // Aggregate scans
+
+    /**
+     * Mean GPA over active students
+     */
+    public double averageGpa() {
+        double sum = 0.0;
+        int count = 0;
+        for (StudentChunk chunk : studentChunks) {
+            boolean[] active = chunk.active;
+            double[] gpa = chunk.gpa;
+            for (int i = 0; i < ID_CHUNK_SIZE; i++) {
+                if (active[i]) {
+                    sum += gpa[i];
+                    count++;
+                }
+            }
+        }
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Graded enrollments per grade ordinal, dropped ones included
+     */
+    public long[] gradeCounts() {
+        long[] counts = new long[GRADES];
+        RowChunk[] chunks = rowChunks;
+        int rowCount = rows.get();
+        for (int chunk = 0; chunk < chunks.length && chunk * CHUNK_SIZE < rowCount; chunk++) {
+            byte[] grades = chunks[chunk].grade;
+            int length = Math.min(CHUNK_SIZE, rowCount - chunk * CHUNK_SIZE);
+            for (int i = 0; i < length; i++) {
+                int grade = grades[i] - 1;
+                if (grade >= 0) {
+                    counts[grade]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Graded enrollments per [department symbol][grade ordinal]; rows of
+     * courses without a department are skipped
+     */
+    public long[][] gradeCountsByDepartment(int departments) {
+        long[][] counts = new long[departments][GRADES];
+        RowChunk[] chunks = rowChunks;
+        int[][] departmentOf = courseDepartment;
+        int rowCount = rows.get();
+        for (int chunk = 0; chunk < chunks.length && chunk * CHUNK_SIZE < rowCount; chunk++) {
+            int[] courses = chunks[chunk].course;
+            byte[] grades = chunks[chunk].grade;
+            int length = Math.min(CHUNK_SIZE, rowCount - chunk * CHUNK_SIZE);
+            for (int i = 0; i < length; i++) {
+                int grade = grades[i] - 1;
+                int department = departmentOf(departmentOf, courses[i]);
+                if (grade >= 0 && department >= 0 && department < departments) {
+                    counts[department][grade]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Credits currently charged by enrollments, per department symbol
+     */
+    public long[] activeCreditsByDepartment(int departments) {
+        long[] credits = new long[departments];
+        RowChunk[] chunks = rowChunks;
+        int[][] departmentOf = courseDepartment;
+        int rowCount = rows.get();
+        for (int chunk = 0; chunk < chunks.length && chunk * CHUNK_SIZE < rowCount; chunk++) {
+            int[] courses = chunks[chunk].course;
+            byte[] charged = chunks[chunk].credits;
+            boolean[] active = chunks[chunk].active;
+            int length = Math.min(CHUNK_SIZE, rowCount - chunk * CHUNK_SIZE);
+            for (int i = 0; i < length; i++) {
+                int department = departmentOf(departmentOf, courses[i]);
+                if (active[i] && department >= 0 && department < departments) {
+                    credits[department] += charged[i];
+                }
+            }
+        }
+        return credits;
+    }
+
+    private static int departmentOf(int[][] departments, int course) {
+        int chunk = course >>> ID_CHUNK_BITS;
+        return chunk < departments.length ? departments[chunk][course & ID_CHUNK_MASK] : SymbolTable.NULL_ID;
+    }
+
+    // Chunk lookups read the directory without locking; only a missing chunk locks
+
+    private RowChunk rowChunk(int row) {
+        RowChunk[] chunks = rowChunks;
+        int index = row >>> CHUNK_BITS;
+        return index < chunks.length ? chunks[index] : addRowChunks(index);
+    }
+
+    private StudentChunk studentChunk(int student) {
+        StudentChunk[] chunks = studentChunks;
+        int index = student >>> ID_CHUNK_BITS;
+        return index < chunks.length ? chunks[index] : addStudentChunks(index);
+    }
+
+    private int[] courseChunk(int course) {
+        int[][] chunks = courseDepartment;
+        int index = course >>> ID_CHUNK_BITS;
+        return index < chunks.length ? chunks[index] : addCourseChunks(index);
+    }
+
+    private synchronized RowChunk addRowChunks(int index) {
+        RowChunk[] chunks = rowChunks;
+        if (index >= chunks.length) {
+            int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, index + 1);
+            for (int i = previous; i < chunks.length; i++) {
+                chunks[i] = new RowChunk();
+            }
+            rowChunks = chunks;
+        }
+        return chunks[index];
+    }
+
+    private synchronized StudentChunk addStudentChunks(int index) {
+        StudentChunk[] chunks = studentChunks;
+        if (index >= chunks.length) {
+            int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, index + 1);
+            for (int i = previous; i < chunks.length; i++) {
+                chunks[i] = new StudentChunk();
+            }
+            studentChunks = chunks;
+        }
+        return chunks[index];
+    }
+
+    private synchronized int[] addCourseChunks(int index) {
+        int[][] chunks = courseDepartment;
+        if (index >= chunks.length) {
+            int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, index + 1);
+            for (int i = previous; i < chunks.length; i++) {
+                chunks[i] = new int[ID_CHUNK_SIZE];
+                Arrays.fill(chunks[i], SymbolTable.NULL_ID);
+            }
+            courseDepartment = chunks;
+        }
+        return chunks[index];
+    }
+
+    private static final class RowChunk {
+        private final int[] course = new int[CHUNK_SIZE];
+        private final byte[] credits = new byte[CHUNK_SIZE];
+        private final byte[] grade = new byte[CHUNK_SIZE];
+        private final boolean[] active = new boolean[CHUNK_SIZE];
+    }
+
+    private static final class StudentChunk {
+        private final boolean[] active = new boolean[ID_CHUNK_SIZE];
+        private final double[] gpa = new double[ID_CHUNK_SIZE];
+    }
+}
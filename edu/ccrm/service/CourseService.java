@@ -1,69 +1,228 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.*;
+import edu.ccrm.io.SnapshotFile;
+import edu.ccrm.util.PostingList;
 import edu.ccrm.util.Validators;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Course Service implementing business logic
  * Demonstrates Stream API usage and functional programming
+ * Catalog changes are expected from a single writer; lookups by code are
+ * safe from concurrent enrollment threads. Courses are keyed by their
+ * interned CourseCode, whose order matches the code string order.
  */
 public class CourseService implements DataService<Course> {
-    private final Map<String, Course> courses;
+    // Typed fields for Query criteria; the indexed ones are recognised by the planner
+    public static final Query.Field<Course, String> CODE = Query.Field.of("code", Course::getCode);
+    public static final Query.Field<Course, String> TITLE = Query.Field.of("title", Course::getTitle);
+    public static final Query.Field<Course, String> INSTRUCTOR = Query.Field.of("instructor", Course::getInstructor);
+    public static final Query.Field<Course, String> DEPARTMENT = Query.Field.of("department", Course::getDepartment);
+    public static final Query.Field<Course, Semester> SEMESTER = Query.Field.of("semester", Course::getSemester);
+    public static final Query.Field<Course, Integer> CREDITS = Query.Field.of("credits", Course::getCredits);
+    public static final Query.Field<Course, Boolean> ACTIVE = Query.Field.of("active", Course::isActive);
+    
+    private final Map<CourseCode, Course> courses;
+    
+    // Every course gets a dense ordinal; the secondary indexes are posting lists of ordinals
+    private final Map<CourseCode, Integer> ordinals;
+    private final List<Course> byOrdinal;
+    private final NavigableMap<CourseCode, Integer> codeOrder;
+    private final Map<String, PostingList> instructorIndex;
+    private final Map<String, PostingList> departmentIndex;
+    private final Map<Semester, PostingList> semesterIndex;
+    private final NavigableMap<Integer, PostingList> creditsIndex;
+    private final PostingList activeCourses;
+    private final SearchIndex searchIndex;
+    
+    // Materialized aggregates over active courses, updated on every mutation
+    private final Map<String, Long> activeByDepartment;
+    private long activeCount;
+    private long activeCreditSum;
+    private final Map<Query.Field<Course, ?>, Map<?, PostingList>> hashIndexes;
+    private final List<Consumer<Course>> changeListeners;
+    private volatile MutationLog mutationLog;
+    private volatile List<String> skippedRecords = List.of();
+    private volatile Path snapshotFile;
     
     public CourseService() {
-        this.courses = new HashMap<>();
+        this.courses = new ConcurrentHashMap<>();
+        this.ordinals = new HashMap<>();
+        this.byOrdinal = new ArrayList<>();
+        this.codeOrder = new TreeMap<>();
+        this.instructorIndex = new HashMap<>();
+        this.departmentIndex = new HashMap<>();
+        this.semesterIndex = new EnumMap<>(Semester.class);
+        this.creditsIndex = new TreeMap<>();
+        this.activeCourses = new PostingList();
+        this.searchIndex = new SearchIndex();
+        this.activeByDepartment = new HashMap<>();
+        this.hashIndexes = Map.of(
+            INSTRUCTOR, instructorIndex,
+            DEPARTMENT, departmentIndex,
+            SEMESTER, semesterIndex,
+            CREDITS, creditsIndex
+        );
+        this.changeListeners = new CopyOnWriteArrayList<>();
+    }
+    
+    /**
+     * Register a callback run after a course is added, replaced or deactivated
+     */
+    public void addChangeListener(Consumer<Course> listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * Record every later mutation in the log; restore() replays it
+     */
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+    
+    /**
+     * Snapshot read by restore(); StudentService.backup() writes it, since
+     * it must hold the enrollments that refer to these courses
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
     }
     
     // CRUD Operations
     public void addCourse(Course course) {
-        validateData(course);
-        courses.put(course.getCode(), course);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            validateData(course);
+            Course previous = courses.put(course.getCourseCode(), course);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(course);
+            fireChanged(course);
+            if (mutationLog != null) {
+                mutationLog.courseAdded(course);
+            }
+        } finally {
+            guard.release();
+        }
     }
     
     public void updateCourse(Course course) {
-        if (!exists(course.getCode())) {
-            throw new IllegalArgumentException("Course not found: " + course.getCode());
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            if (findById(course.getCourseCode()) == null) {
+                throw new IllegalArgumentException("Course not found: " + course.getCode());
+            }
+            validateData(course);
+            unindex(courses.put(course.getCourseCode(), course));
+            index(course);
+            fireChanged(course);
+            if (mutationLog != null) {
+                mutationLog.courseUpdated(course);
+            }
+        } finally {
+            guard.release();
         }
-        validateData(course);
-        courses.put(course.getCode(), course);
     }
     
     public void deactivateCourse(String courseCode) {
-        Course course = findById(courseCode);
-        if (course != null) {
-            course.setActive(false);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            Course course = findById(courseCode);
+            if (course != null) {
+                // The finders report inactive courses as well, so only the active index changes
+                course.setActive(false);
+                int ordinal = ordinals.get(course.getCourseCode());
+                if (activeCourses.contains(ordinal)) {
+                    activeCourses.remove(ordinal);
+                    countActive(course, -1);
+                }
+                fireChanged(course);
+                if (mutationLog != null) {
+                    mutationLog.courseDeactivated(course.getCourseCode());
+                }
+            }
+        } finally {
+            guard.release();
         }
     }
     
-    // Search and Filter operations using Stream API
+    private void fireChanged(Course course) {
+        for (Consumer<Course> listener : changeListeners) {
+            listener.accept(course);
+        }
+    }
+    
+    // Index-backed lookups: cost is proportional to the result size
     public List<Course> findByInstructor(String instructor) {
-        return findBy(course -> instructor.equals(course.getInstructor()));
+        return materialize(instructorIndex.get(instructor));
     }
     
     public List<Course> findByDepartment(String department) {
-        return findBy(course -> department.equals(course.getDepartment()));
+        return materialize(departmentIndex.get(department));
     }
     
     public List<Course> findBySemester(Semester semester) {
-        return findBy(course -> semester.equals(course.getSemester()));
+        return materialize(semesterIndex.get(semester));
     }
     
     public List<Course> findByCredits(int minCredits, int maxCredits) {
-        return findBy(course -> course.getCredits() >= minCredits && course.getCredits() <= maxCredits);
+        return materialize(creditsRange(minCredits, maxCredits));
     }
     
-    // Advanced search with multiple criteria
+    // Advanced search with multiple criteria, answered by the query planner
     public List<Course> searchCourses(String instructor, String department, Semester semester) {
-        return courses.values().stream()
-                .filter(course -> instructor == null || instructor.equals(course.getInstructor()))
-                .filter(course -> department == null || department.equals(course.getDepartment()))
-                .filter(course -> semester == null || semester.equals(course.getSemester()))
-                .filter(Course::isActive)
-                .sorted(Comparator.comparing(Course::getCode))
-                .collect(Collectors.toList());
+        Query.Builder<Course> query = Query.<Course>builder()
+                .where(ACTIVE, true)
+                .orderBy(CODE);
+        if (instructor != null) {
+            query.where(INSTRUCTOR, instructor);
+        }
+        if (department != null) {
+            query.where(DEPARTMENT, department);
+        }
+        if (semester != null) {
+            query.where(SEMESTER, semester);
+        }
+        return findBy(query.build());
+    }
+    
+    /**
+     * Courses whose title or code match the text, by prefix, substring or
+     * close spelling; best matches first
+     */
+    public List<Course> search(String text, int limit) {
+        List<Course> result = new ArrayList<>();
+        for (String code : searchIndex.search(text, limit)) {
+            Course course = findById(code);
+            if (course != null) {
+                result.add(course);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Number of courses matching the query, counted on the posting lists
+     * without materializing any course when no residual condition remains
+     */
+    public long countCourses(Query<Course> query) {
+        Plan plan = plan(query);
+        if (plan.driver == null || !plan.residual.isEmpty()) {
+            return plan.candidates().count();
+        }
+        return plan.matches.cardinality();
     }
     
     // Interface implementations
@@ -75,11 +234,26 @@ public class CourseService implements DataService<Course> {
     @Override
     public void save() {
         System.out.println("Saving " + courses.size() + " courses...");
+        if (mutationLog != null) {
+            mutationLog.flush();
+        }
     }
     
     @Override
     public void delete() {
         courses.clear();
+        ordinals.clear();
+        byOrdinal.clear();
+        codeOrder.clear();
+        instructorIndex.clear();
+        departmentIndex.clear();
+        semesterIndex.clear();
+        creditsIndex.clear();
+        activeCourses.clear();
+        searchIndex.clear();
+        activeByDepartment.clear();
+        activeCount = 0;
+        activeCreditSum = 0;
     }
     
     @Override
@@ -87,6 +261,23 @@ public class CourseService implements DataService<Course> {
         return new ArrayList<>(courses.values());
     }
     
+    @Override
+    public Stream<Course> stream() {
+        return courses.values().stream();
+    }
+    
+    @Override
+    public long count() {
+        return courses.size();
+    }
+    
+    @Override
+    public Page<Course> page(String afterCode, int pageSize) {
+        NavigableSet<CourseCode> codes = codeOrder.navigableKeySet();
+        return Paging.page(afterCode == null ? codes : codes.tailSet(CourseCode.parse(afterCode), false),
+                           pageSize, courses::get);
+    }
+    
     @Override
     public List<Course> findBy(Predicate<Course> criteria) {
         return courses.values().stream()
@@ -94,8 +285,27 @@ public class CourseService implements DataService<Course> {
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public List<Course> findBy(Query<Course> query) {
+        Plan plan = plan(query);
+        if (plan.walksCodeOrder()) {
+            return plan.walkCodeOrder();
+        }
+        return query.orderAndLimit(plan.candidates());
+    }
+    
+    @Override
+    public QueryPlan explain(Query<Course> query) {
+        return plan(query).describe();
+    }
+    
     @Override
     public Course findById(String code) {
+        CourseCode key = CourseCode.tryParse(code);
+        return key == null ? null : courses.get(key);
+    }
+    
+    public Course findById(CourseCode code) {
         return courses.get(code);
     }
     
@@ -115,32 +325,287 @@ public class CourseService implements DataService<Course> {
         System.out.println("Backing up course data...");
     }
     
+    /**
+     * Load the courses of the last snapshot, then replay the course records
+     * of the mutation log on top of them
+     */
     @Override
     public void restore() {
         System.out.println("Restoring course data...");
+        Path source = snapshotFile;
+        MutationLog log = mutationLog;
+        try {
+            if (source != null && Files.exists(source)) {
+                SnapshotFile snapshot = SnapshotFile.open(source);
+                if (log != null) {
+                    log.withoutLogging(() -> snapshot.readCourses(this::addCourse));
+                } else {
+                    snapshot.readCourses(this::addCourse);
+                }
+            }
+            if (log != null) {
+                skippedRecords = log.replay(this, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore course data", e);
+        }
+    }
+    
+    /**
+     * Log records the last restore() skipped because the service rejected
+     * them, e.g. an enrollment in a course that is no longer active
+     */
+    public List<String> getSkippedRecords() {
+        return skippedRecords;
     }
     
-    // Utility methods with Stream API
+    // Aggregates: snapshots of the maintained counters, or bitmap ANDs
     public Map<String, Long> getCoursesByDepartment() {
-        return courses.values().stream()
-                .filter(Course::isActive)
-                .collect(Collectors.groupingBy(
-                    Course::getDepartment,
-                    Collectors.counting()
-                ));
+        return new HashMap<>(activeByDepartment);
     }
     
     public Map<Semester, List<Course>> getCoursesBySemester() {
-        return courses.values().stream()
-                .filter(Course::isActive)
-                .collect(Collectors.groupingBy(Course::getSemester));
+        Map<Semester, List<Course>> result = new HashMap<>();
+        semesterIndex.forEach((semester, postings) -> {
+            List<Course> active = materialize(postings.and(activeCourses));
+            if (!active.isEmpty()) {
+                result.put(semester, active);
+            }
+        });
+        return result;
     }
     
     public double getAverageCredits() {
-        return courses.values().stream()
+        return activeCount == 0 ? 0.0 : (double) activeCreditSum / activeCount;
+    }
+    
+    /**
+     * Recompute the maintained aggregates from scratch and compare
+     * @throws IllegalStateException describing the first mismatch
+     */
+    public void verifyAggregates() {
+        Map<String, Long> byDepartment = courses.values().stream()
                 .filter(Course::isActive)
-                .mapToInt(Course::getCredits)
-                .average()
-                .orElse(0.0);
+                .collect(Collectors.groupingBy(Course::getDepartment, Collectors.counting()));
+        if (!byDepartment.equals(activeByDepartment)) {
+            throw new IllegalStateException("Department counts " + activeByDepartment + " != recomputed " + byDepartment);
+        }
+        long count = courses.values().stream().filter(Course::isActive).count();
+        long credits = courses.values().stream().filter(Course::isActive).mapToLong(Course::getCredits).sum();
+        if (count != activeCount || credits != activeCreditSum) {
+            throw new IllegalStateException(String.format("Active totals %d/%d != recomputed %d/%d",
+                                            activeCount, activeCreditSum, count, credits));
+        }
+    }
+    
+    // Index maintenance; a replaced course keeps the ordinal of its code
+    private void index(Course course) {
+        int ordinal = ordinals.computeIfAbsent(course.getCourseCode(), code -> {
+            byOrdinal.add(null);
+            return byOrdinal.size() - 1;
+        });
+        byOrdinal.set(ordinal, course);
+        codeOrder.put(course.getCourseCode(), ordinal);
+        instructorIndex.computeIfAbsent(course.getInstructor(), k -> new PostingList()).add(ordinal);
+        departmentIndex.computeIfAbsent(course.getDepartment(), k -> new PostingList()).add(ordinal);
+        semesterIndex.computeIfAbsent(course.getSemester(), k -> new PostingList()).add(ordinal);
+        creditsIndex.computeIfAbsent(course.getCredits(), k -> new PostingList()).add(ordinal);
+        searchIndex.put(course.getCode(), course.getTitle(), course.getCode());
+        if (course.isActive()) {
+            activeCourses.add(ordinal);
+            countActive(course, 1);
+        }
+    }
+    
+    private void unindex(Course course) {
+        int ordinal = ordinals.get(course.getCourseCode());
+        removeFromIndex(instructorIndex, course.getInstructor(), ordinal);
+        removeFromIndex(departmentIndex, course.getDepartment(), ordinal);
+        removeFromIndex(semesterIndex, course.getSemester(), ordinal);
+        removeFromIndex(creditsIndex, course.getCredits(), ordinal);
+        if (activeCourses.contains(ordinal)) {
+            activeCourses.remove(ordinal);
+            countActive(course, -1);
+        }
+    }
+    
+    private void countActive(Course course, int delta) {
+        activeCount += delta;
+        activeCreditSum += (long) delta * course.getCredits();
+        activeByDepartment.merge(course.getDepartment(), (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+    
+    private static <K> void removeFromIndex(Map<K, PostingList> index, K key, int ordinal) {
+        PostingList postings = index.get(key);
+        if (postings != null) {
+            postings.remove(ordinal);
+            if (postings.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
+    private PostingList creditsRange(int minCredits, int maxCredits) {
+        PostingList result = new PostingList();
+        if (minCredits <= maxCredits) {
+            for (PostingList postings : creditsIndex.subMap(minCredits, true, maxCredits, true).values()) {
+                result = result.or(postings);
+            }
+        }
+        return result;
+    }
+    
+    private List<Course> materialize(PostingList postings) {
+        List<Course> result = new ArrayList<>();
+        if (postings != null) {
+            postings.iterator().forEachRemaining((int ordinal) -> result.add(byOrdinal.get(ordinal)));
+        }
+        return result;
+    }
+    
+    // Query planning
+    
+    /**
+     * AND the posting lists of all indexed conditions, most selective first,
+     * and leave the remaining conditions as residual predicates
+     */
+    private Plan plan(Query<Course> query) {
+        List<IndexAccess> indexed = new ArrayList<>();
+        List<Query.Condition<Course>> residual = new ArrayList<>();
+        for (Query.Condition<Course> condition : query.getConditions()) {
+            IndexAccess access = indexAccess(condition);
+            if (access != null) {
+                indexed.add(access);
+            } else {
+                residual.add(condition);
+            }
+        }
+        indexed.sort(Comparator.comparingInt(IndexAccess::estimate));
+        IndexAccess driver = indexed.isEmpty() ? null : indexed.remove(0);
+        return new Plan(query, driver, indexed, residual);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private IndexAccess indexAccess(Query.Condition<Course> condition) {
+        if (condition.getField() == ACTIVE) {
+            boolean activeOnly = condition.getOperator() == Query.Operator.EQUALS
+                    && Boolean.TRUE.equals(condition.getValue());
+            return activeOnly ? new IndexAccess(condition, activeCourses) : null;
+        }
+        Map<Object, PostingList> index = (Map<Object, PostingList>) hashIndexes.get(condition.getField());
+        if (index == null) {
+            return null;
+        }
+        return switch (condition.getOperator()) {
+            case EQUALS -> new IndexAccess(condition, index.getOrDefault(condition.getValue(), new PostingList()));
+            case IN -> {
+                PostingList union = new PostingList();
+                for (Object value : condition.getValues()) {
+                    PostingList postings = index.get(value);
+                    if (postings != null) {
+                        union = union.or(postings);
+                    }
+                }
+                yield new IndexAccess(condition, union);
+            }
+            case RANGE -> condition.getField() != CREDITS ? null
+                    : new IndexAccess(condition, creditsRange((Integer) condition.getMin(), (Integer) condition.getMax()));
+        };
+    }
+    
+    /**
+     * Posting list one indexed condition resolves to
+     */
+    private static final class IndexAccess {
+        private final Query.Condition<Course> condition;
+        private final PostingList postings;
+        private final int estimate;
+        
+        IndexAccess(Query.Condition<Course> condition, PostingList postings) {
+            this.condition = condition;
+            this.postings = postings;
+            this.estimate = postings.cardinality();
+        }
+        
+        int estimate() { return estimate; }
+    }
+    
+    private final class Plan {
+        private final Query<Course> query;
+        private final IndexAccess driver;
+        private final List<IndexAccess> probes;
+        private final List<Query.Condition<Course>> residual;
+        private final PostingList matches;
+        
+        Plan(Query<Course> query, IndexAccess driver, List<IndexAccess> probes, List<Query.Condition<Course>> residual) {
+            this.query = query;
+            this.driver = driver;
+            this.probes = probes;
+            this.residual = residual;
+            PostingList result = driver == null ? null : driver.postings;
+            for (IndexAccess probe : probes) {
+                if (result.isEmpty()) {
+                    break;
+                }
+                result = result.and(probe.postings);
+            }
+            this.matches = result;
+        }
+        
+        private boolean residualMatches(Course course) {
+            for (Query.Condition<Course> condition : residual) {
+                if (!condition.test(course)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        Stream<Course> candidates() {
+            Stream<Course> candidates = driver == null
+                    ? courses.values().stream()
+                    : matches.stream().mapToObj(byOrdinal::get);
+            return candidates.filter(this::residualMatches);
+        }
+        
+        /**
+         * A small page ordered by code is cheaper to read off the code order,
+         * keeping only matching ordinals, than to materialize and sort every match
+         */
+        boolean walksCodeOrder() {
+            if (driver == null || query.getOrderBy() != CODE || !query.hasLimit() || matches.isEmpty()) {
+                return false;
+            }
+            long expectedVisits = (long) query.getLimit() * byOrdinal.size() / matches.cardinality();
+            return expectedVisits <= matches.cardinality();
+        }
+        
+        List<Course> walkCodeOrder() {
+            List<Course> page = new ArrayList<>();
+            Collection<Integer> order = query.isDescending() ? codeOrder.descendingMap().values() : codeOrder.values();
+            for (int ordinal : order) {
+                if (page.size() >= query.getLimit()) {
+                    break;
+                }
+                if (matches.contains(ordinal)) {
+                    Course course = byOrdinal.get(ordinal);
+                    if (residualMatches(course)) {
+                        page.add(course);
+                    }
+                }
+            }
+            return page;
+        }
+        
+        QueryPlan describe() {
+            List<String> residualText = residual.stream().map(Object::toString).toList();
+            if (driver == null) {
+                return new QueryPlan(QueryPlan.Strategy.FULL_SCAN, null, List.of(), residualText, courses.size());
+            }
+            QueryPlan.Strategy strategy = matches.isEmpty() ? QueryPlan.Strategy.EMPTY : QueryPlan.Strategy.INDEX;
+            List<String> intersected = probes.stream().map(p -> p.condition.toString()).toList();
+            return new QueryPlan(strategy, driver.condition.toString(), intersected, residualText,
+                                 matches.cardinality(), walksCodeOrder());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,505 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.CourseCode;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Symbols;
+import edu.ccrm.io.EnrollmentFile;
+import edu.ccrm.util.LongObjectHashMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe enrollment storage keyed on student/course symbol ids
+ * Courses are keyed by their interned CourseCode.
+ * A (student, course) pair is packed into a primitive long, so key lookups
+ * allocate nothing; per-student and per-course adjacency lists answer
+ * transcript and roster queries in time proportional to their size.
+ *
+ * Keys are lock-striped by a hash of the student id: everything about one
+ * student lives in a single stripe, so callers can make a multi-step change
+ * for that student atomic by holding lockFor(studentId), while unrelated
+ * students proceed in parallel on other stripes. The stripes are fixed, so
+ * locking an unknown id allocates nothing.
+ *
+ * Each active enrollment charges its course credits to the student's
+ * counter for the course semester, so credit-limit checks are O(1).
+ * Charging methods must be called while holding lockFor(studentId).
+ *
+ * Every enrollment also owns a row in a ColumnarStore, kept in step with
+ * its status, grade and charged credits, for the analytics scans.
+ *
+ * A store opened on an EnrollmentFile keeps the enrollment records
+ * off-heap in the mapped file and materializes Enrollment objects only
+ * when they are read; the in-memory part is the pair -> record index.
+ */
+public class EnrollmentStore {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentHashMap<String, StudentSlot> students;
+    private final ConcurrentHashMap<CourseCode, CourseSlot> courses;
+    private final Stripe[] stripes;
+    private final ColumnarStore columns;
+    private final EnrollmentFile file;
+
+    public EnrollmentStore() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public EnrollmentStore(int stripeCount) {
+        this(stripeCount, null);
+    }
+
+    private EnrollmentStore(int stripeCount, EnrollmentFile file) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.students = new ConcurrentHashMap<>();
+        this.courses = new ConcurrentHashMap<>();
+        this.columns = new ColumnarStore();
+        this.file = file;
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1; // power of two so the stripe is a mask of the hash
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Open (or create) a store backed by a memory-mapped enrollment file;
+     * an existing file is re-indexed without materializing its enrollments
+     */
+    public static EnrollmentStore open(Path path) throws IOException {
+        EnrollmentFile file = EnrollmentFile.open(path);
+        EnrollmentStore store = new EnrollmentStore(DEFAULT_STRIPES, file);
+        try {
+            for (int record = 0; record < file.size(); record++) {
+                store.index(record);
+            }
+        } catch (RuntimeException e) {
+            file.close();
+            throw new IOException("Corrupt enrollment file " + path + ": " + e.getMessage(), e);
+        }
+        return store;
+    }
+
+    /**
+     * Monitor guarding every enrollment of the given student
+     */
+    public Object lockFor(String studentId) {
+        return stripeOf(studentId);
+    }
+
+    /**
+     * Whether enrollments of this student id can be stored; a mapped store
+     * keeps the id inline in each record, so it has a length limit
+     */
+    public boolean acceptsStudentId(String studentId) {
+        return file == null
+            || studentId.getBytes(StandardCharsets.UTF_8).length <= EnrollmentFile.MAX_STUDENT_ID_BYTES;
+    }
+
+    /**
+     * The enrollment, materialized from its record in a mapped store
+     */
+    public Enrollment get(String studentId, CourseCode courseCode) {
+        Entry entry = entry(studentId, courseCode);
+        return entry == null ? null : enrollmentOf(entry);
+    }
+
+    // The lookups below read the entry or record fields without building an Enrollment
+
+    public boolean contains(String studentId, CourseCode courseCode) {
+        return entry(studentId, courseCode) != null;
+    }
+
+    public boolean isActive(String studentId, CourseCode courseCode) {
+        Entry entry = entry(studentId, courseCode);
+        return entry != null && isActive(entry);
+    }
+
+    /**
+     * @return null if the pair is not enrolled or not graded
+     */
+    public Grade gradeOf(String studentId, CourseCode courseCode) {
+        Entry entry = entry(studentId, courseCode);
+        if (entry == null) {
+            return null;
+        }
+        return file == null ? entry.enrollment.getGrade() : file.getGrade(entry.record);
+    }
+
+    /**
+     * Record a new enrollment and charge its credits to the given semester;
+     * the pair must not be enrolled already
+     */
+    public Enrollment add(String studentId, CourseCode courseCode, Semester semester, int credits) {
+        StudentSlot student = studentSlot(studentId);
+        CourseSlot course = courses.computeIfAbsent(courseCode,
+                code -> new CourseSlot(code.getSymbol()));
+        long key = key(student.ordinal, course.ordinal);
+        Stripe stripe = student.stripe;
+        Entry entry = new Entry(student);
+        Enrollment enrollment = new Enrollment(studentId, courseCode);
+        synchronized (stripe) {
+            if (stripe.byKey.containsKey(key)) {
+                throw new IllegalStateException("Enrollment already exists: " + studentId + "-" + courseCode);
+            }
+            if (file == null) {
+                entry.enrollment = enrollment;
+            } else {
+                entry.record = file.append(studentId, courseCode.getPacked(), toMillis(enrollment.getEnrollmentDate()));
+            }
+            stripe.byKey.put(key, entry);
+            student.entries.add(entry);
+            charge(student, entry, semester, credits);
+            entry.row = columns.appendEnrollment(course.ordinal, credits);
+        }
+        synchronized (course) {
+            course.entries.add(entry);
+        }
+        return enrollment;
+    }
+    
+    /**
+     * Put back a saved enrollment as it was, charging the given semester if
+     * it is active; unlike add() no business rule is checked
+     * @param semester null to charge nothing, e.g. for a deactivated course
+     * @return false if the pair is already enrolled (nothing changes)
+     */
+    public boolean restore(Enrollment saved, Semester semester, int credits) {
+        String studentId = saved.getStudentId();
+        CourseCode courseCode = CourseCode.parse(saved.getCourseCode());
+        StudentSlot student = studentSlot(studentId);
+        CourseSlot course = courses.computeIfAbsent(courseCode,
+                code -> new CourseSlot(code.getSymbol()));
+        long key = key(student.ordinal, course.ordinal);
+        Stripe stripe = student.stripe;
+        Entry entry = new Entry(student);
+        synchronized (stripe) {
+            if (stripe.byKey.containsKey(key)) {
+                return false;
+            }
+            if (file == null) {
+                entry.enrollment = saved;
+            } else {
+                entry.record = file.append(studentId, courseCode.getPacked(), toMillis(saved.getEnrollmentDate()));
+                file.setGrade(entry.record, saved.getGrade());
+                file.setActive(entry.record, saved.isActive());
+            }
+            stripe.byKey.put(key, entry);
+            student.entries.add(entry);
+            boolean charged = saved.isActive() && semester != null;
+            charge(student, entry, charged ? semester : null, credits);
+            entry.row = columns.appendEnrollment(course.ordinal, charged ? credits : 0);
+            columns.setGrade(entry.row, saved.getGrade());
+            columns.setActive(entry.row, charged);
+        }
+        synchronized (course) {
+            course.entries.add(entry);
+        }
+        return true;
+    }
+    
+    /**
+     * Deactivate an active enrollment and release its credits
+     * @return false if there was no active enrollment to drop
+     */
+    public boolean drop(String studentId, CourseCode courseCode) {
+        Entry entry = entry(studentId, courseCode);
+        if (entry == null || !isActive(entry)) {
+            return false;
+        }
+        synchronized (entry.student.stripe) {
+            if (file == null) {
+                entry.enrollment.deactivate();
+            } else {
+                file.setActive(entry.record, false);
+            }
+            charge(entry.student, entry, null, 0);
+            columns.setActive(entry.row, false);
+        }
+        return true;
+    }
+    
+    /**
+     * Set the grade of an existing enrollment
+     * @return false if the pair is not enrolled
+     */
+    public boolean grade(String studentId, CourseCode courseCode, Grade grade) {
+        Entry entry = entry(studentId, courseCode);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry.student.stripe) {
+            if (file == null) {
+                entry.enrollment.assignGrade(grade);
+            } else {
+                file.setGrade(entry.record, grade);
+            }
+            columns.setGrade(entry.row, grade);
+        }
+        return true;
+    }
+    
+    /**
+     * Move an active enrollment's charge after its course changed
+     * (a null semester releases the charge, e.g. for a deactivated course)
+     */
+    public void recharge(String studentId, CourseCode courseCode, Semester semester, int credits) {
+        Entry entry = entry(studentId, courseCode);
+        if (entry != null) {
+            synchronized (entry.student.stripe) {
+                if (isActive(entry)) {
+                    charge(entry.student, entry, semester, credits);
+                    columns.setCredits(entry.row, credits);
+                    columns.setActive(entry.row, semester != null);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Credits currently charged to a student for one semester, O(1)
+     */
+    public int creditsFor(String studentId, Semester semester) {
+        StudentSlot student = students.get(studentId);
+        if (student == null) {
+            return 0;
+        }
+        synchronized (student.stripe) {
+            return student.credits[semester.ordinal()];
+        }
+    }
+
+    /**
+     * Snapshot of all enrollments of a student, including dropped ones
+     */
+    public List<Enrollment> forStudent(String studentId) {
+        StudentSlot student = students.get(studentId);
+        if (student == null) {
+            return List.of();
+        }
+        synchronized (student.stripe) {
+            return enrollmentsOf(student.entries);
+        }
+    }
+
+    /**
+     * Snapshot of all enrollments in a course, including dropped ones
+     */
+    public List<Enrollment> forCourse(CourseCode courseCode) {
+        CourseSlot course = courses.get(courseCode);
+        if (course == null) {
+            return List.of();
+        }
+        synchronized (course) {
+            return enrollmentsOf(course.entries);
+        }
+    }
+
+    public Stream<Enrollment> stream() {
+        return students.values().stream().flatMap(student -> {
+            synchronized (student.stripe) {
+                return enrollmentsOf(student.entries).stream();
+            }
+        });
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.byKey.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Not atomic with respect to concurrent enrollments
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.byKey.clear();
+            }
+        }
+        students.clear();
+        courses.clear();
+        columns.clear();
+        if (file != null) {
+            file.clear();
+        }
+    }
+
+    /**
+     * Write the mapped records back to disk; a no-op for a heap store
+     */
+    public void flush() {
+        if (file != null) {
+            file.force();
+        }
+    }
+
+    /**
+     * Flush and unmap the backing file, if any
+     */
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+    
+    /**
+     * Columnar projection of the enrollments, for aggregate scans
+     */
+    ColumnarStore columns() {
+        return columns;
+    }
+
+    private Entry entry(String studentId, CourseCode courseCode) {
+        StudentSlot student = students.get(studentId);
+        CourseSlot course = courses.get(courseCode);
+        if (student == null || course == null) {
+            return null;
+        }
+        Stripe stripe = student.stripe;
+        synchronized (stripe) {
+            return stripe.byKey.get(key(student.ordinal, course.ordinal));
+        }
+    }
+    
+    // Caller holds the student's stripe
+    private void charge(StudentSlot student, Entry entry, Semester semester, int credits) {
+        if (entry.chargedSemester != null) {
+            student.credits[entry.chargedSemester.ordinal()] -= entry.chargedCredits;
+        }
+        entry.chargedSemester = semester;
+        entry.chargedCredits = semester == null ? 0 : credits;
+        if (semester != null) {
+            student.credits[semester.ordinal()] += credits;
+        }
+        if (file != null) {
+            file.setCharge(entry.record, semester, credits);
+        }
+    }
+    
+    private List<Enrollment> enrollmentsOf(List<Entry> entries) {
+        List<Enrollment> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            result.add(enrollmentOf(entry));
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    private boolean isActive(Entry entry) {
+        return file == null ? entry.enrollment.isActive() : file.isActive(entry.record);
+    }
+    
+    // Heap entries hold their Enrollment; mapped ones are read back from the record
+    private Enrollment enrollmentOf(Entry entry) {
+        if (file == null) {
+            return entry.enrollment;
+        }
+        int record = entry.record;
+        return new Enrollment(Symbols.STUDENT_IDS.symbol(entry.student.ordinal),
+                              CourseCode.fromPacked(file.getCourseCode(record)),
+                              LocalDateTime.ofInstant(Instant.ofEpochMilli(file.getEnrolledAt(record)), ZoneOffset.UTC),
+                              file.getGrade(record), file.isActive(record));
+    }
+    
+    // Rebuild the in-memory index, credit counters and columns for one mapped record
+    private void index(int record) {
+        StudentSlot student = studentSlot(file.getStudentId(record));
+        CourseCode code = CourseCode.fromPacked(file.getCourseCode(record));
+        CourseSlot course = courses.computeIfAbsent(code, c -> new CourseSlot(c.getSymbol()));
+        Entry entry = new Entry(student);
+        entry.record = record;
+        if (student.stripe.byKey.put(key(student.ordinal, course.ordinal), entry) != null) {
+            throw new IllegalStateException("duplicate record for " + file.getStudentId(record) + "-" + code);
+        }
+        student.entries.add(entry);
+        course.entries.add(entry);
+        entry.chargedSemester = file.getChargedSemester(record);
+        entry.chargedCredits = file.getChargedCredits(record);
+        if (entry.chargedSemester != null) {
+            student.credits[entry.chargedSemester.ordinal()] += entry.chargedCredits;
+        }
+        entry.row = columns.appendEnrollment(course.ordinal, entry.chargedCredits);
+        columns.setGrade(entry.row, file.getGrade(record));
+        columns.setActive(entry.row, entry.chargedSemester != null);
+    }
+    
+    // Wall-clock enrollment time as stored in the file
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+    
+    private StudentSlot studentSlot(String studentId) {
+        return students.computeIfAbsent(studentId,
+                id -> new StudentSlot(Symbols.STUDENT_IDS.intern(id), stripeOf(id)));
+    }
+
+    private Stripe stripeOf(String studentId) {
+        int hash = studentId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static long key(int student, int course) {
+        return ((long) student << 32) | (course & 0xFFFFFFFFL);
+    }
+
+    private static final class Stripe {
+        private final LongObjectHashMap<Entry> byKey = new LongObjectHashMap<>();
+    }
+
+    private static final class StudentSlot {
+        private final int ordinal;
+        private final Stripe stripe;
+        private final List<Entry> entries = new ArrayList<>();
+        private final int[] credits = new int[Semester.values().length];
+
+        StudentSlot(int ordinal, Stripe stripe) {
+            this.ordinal = ordinal;
+            this.stripe = stripe;
+        }
+    }
+
+    private static final class CourseSlot {
+        private final int ordinal;
+        private final List<Entry> entries = new ArrayList<>();
+
+        CourseSlot(int ordinal) {
+            this.ordinal = ordinal;
+        }
+    }
+
+    /**
+     * An enrollment (or its record number in the mapped file) plus the
+     * credits it currently charges; the charge is guarded by the student's stripe
+     */
+    private static final class Entry {
+        private final StudentSlot student;
+        private Enrollment enrollment;
+        private int record;
+        private Semester chargedSemester;
+        private int chargedCredits;
+        private int row;
+
+        Entry(StudentSlot student) {
+            this.student = student;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package edu.ccrm.service;
+
+import java.util.*;
+
+/**
+ * Order-statistic tree of students ranked by GPA (highest first, ties by id)
+ * A treap whose nodes carry subtree sizes: updates, rank and percentile are
+ * O(log n) expected, and the top K are read by an in-order walk in O(K + log n).
+ */
+class GpaLeaderboard {
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Random priorities = new Random();
+    private Node root;
+
+    private static final class Node {
+        private final String id;
+        private final double gpa;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        Node(String id, double gpa, int priority) {
+            this.id = id;
+            this.gpa = gpa;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Insert the student or move them to their new GPA
+     */
+    public synchronized void update(String id, double gpa) {
+        Node existing = nodes.get(id);
+        if (existing != null) {
+            if (existing.gpa == gpa) {
+                return;
+            }
+            root = erase(root, existing);
+        }
+        Node node = new Node(id, gpa, priorities.nextInt());
+        nodes.put(id, node);
+        root = insert(root, node);
+    }
+
+    public synchronized void remove(String id) {
+        Node existing = nodes.remove(id);
+        if (existing != null) {
+            root = erase(root, existing);
+        }
+    }
+
+    public synchronized boolean contains(String id) {
+        return nodes.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    /**
+     * Ids of the best {@code k} students, best first
+     */
+    public synchronized List<String> top(int k) {
+        List<String> result = new ArrayList<>(Math.min(Math.max(k, 0), size(root)));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node current = root;
+        while (result.size() < k && (current != null || !stack.isEmpty())) {
+            while (current != null) {
+                stack.push(current);
+                current = current.left;
+            }
+            Node next = stack.pop();
+            result.add(next.id);
+            current = next.right;
+        }
+        return result;
+    }
+
+    /**
+     * 1-based rank of the student, or -1 if they are not on the board
+     */
+    public synchronized int rankOf(String id) {
+        Node target = nodes.get(id);
+        if (target == null) {
+            return -1;
+        }
+        int rank = 0;
+        Node current = root;
+        while (current != null) {
+            int cmp = compare(target, current);
+            if (cmp < 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                if (cmp == 0) {
+                    return rank;
+                }
+                current = current.right;
+            }
+        }
+        throw new IllegalStateException("Leaderboard index out of sync for: " + id);
+    }
+
+    // Ordering: higher GPA first, then id ascending
+    private static int compare(Node a, Node b) {
+        int cmp = Double.compare(b.gpa, a.gpa);
+        return cmp != 0 ? cmp : a.id.compareTo(b.id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] halves = split(node, added);
+            added.left = halves[0];
+            added.right = halves[1];
+            return update(added);
+        }
+        if (compare(added, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return update(node);
+    }
+
+    // Split into nodes ordered before the pivot and the rest
+    private static Node[] split(Node node, Node pivot) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node, pivot) < 0) {
+            Node[] halves = split(node.right, pivot);
+            node.right = halves[0];
+            halves[0] = update(node);
+            return halves;
+        }
+        Node[] halves = split(node.left, pivot);
+        node.left = halves[1];
+        halves[1] = update(node);
+        return halves;
+    }
+
+    private static Node erase(Node node, Node removed) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(removed, node);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = erase(node.left, removed);
+        } else {
+            node.right = erase(node.right, removed);
+        }
+        return update(node);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,373 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.exceptions.DuplicateEnrollmentException;
+import edu.ccrm.exceptions.DuplicateStudentException;
+import edu.ccrm.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.io.WriteAheadLog;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service mutations as compact binary records in a write-ahead log
+ * The student and course services append a record once a mutation has been
+ * applied in memory and before the call returns, so under PER_OP every
+ * acknowledged change survives a crash. Replaying the log through the same
+ * service methods rebuilds the state; records that are already reflected
+ * (for example enrollments held by a mapped enrollment store) are skipped,
+ * and records the services now reject are skipped and reported to the caller.
+ */
+public class MutationLog implements Closeable {
+    private static final byte ADD_STUDENT = 1;
+    private static final byte UPDATE_STUDENT = 2;
+    private static final byte DEACTIVATE_STUDENT = 3;
+    private static final byte ENROLL = 4;
+    private static final byte UNENROLL = 5;
+    private static final byte GRADE = 6;
+    private static final byte ADD_COURSE = 7;
+    private static final byte UPDATE_COURSE = 8;
+    private static final byte DEACTIVATE_COURSE = 9;
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private final WriteAheadLog log;
+    // Per thread, so replaying or loading on one thread never drops the
+    // mutations other threads make meanwhile
+    private final ThreadLocal<Boolean> unlogged = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    // Shared by each logged mutation, exclusive while a checkpoint captures state
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    public MutationLog(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    public static MutationLog open(Path path, WriteAheadLog.SyncPolicy policy) throws IOException {
+        return new MutationLog(WriteAheadLog.open(path, policy));
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    // Recording; each call is a no-op on a thread that is replaying the log
+
+    void studentAdded(Student student) {
+        append(ADD_STUDENT, out -> writeStudent(out, student));
+    }
+
+    void studentUpdated(Student student) {
+        append(UPDATE_STUDENT, out -> writeStudent(out, student));
+    }
+
+    void studentDeactivated(String studentId) {
+        append(DEACTIVATE_STUDENT, out -> out.writeUTF(studentId));
+    }
+
+    void enrolled(String studentId, CourseCode code) {
+        append(ENROLL, out -> {
+            out.writeUTF(studentId);
+            out.writeLong(code.getPacked());
+        });
+    }
+
+    void unenrolled(String studentId, CourseCode code) {
+        append(UNENROLL, out -> {
+            out.writeUTF(studentId);
+            out.writeLong(code.getPacked());
+        });
+    }
+
+    void graded(String studentId, CourseCode code, Grade grade) {
+        append(GRADE, out -> {
+            out.writeUTF(studentId);
+            out.writeLong(code.getPacked());
+            out.writeByte(grade.ordinal());
+        });
+    }
+
+    void courseAdded(Course course) {
+        append(ADD_COURSE, out -> writeCourse(out, course));
+    }
+
+    void courseUpdated(Course course) {
+        append(UPDATE_COURSE, out -> writeCourse(out, course));
+    }
+
+    void courseDeactivated(CourseCode code) {
+        append(DEACTIVATE_COURSE, out -> out.writeLong(code.getPacked()));
+    }
+
+    /**
+     * Apply every logged mutation, oldest first. Records the services reject
+     * (student missing, course inactive, credit limit reached) are skipped
+     * and returned, so the caller can report that the registry differs from
+     * the log; any other failure aborts the replay.
+     * @param students null to apply course records only
+     * @return one line per skipped record, empty when every record applied
+     */
+    public List<String> replay(CourseService courses, StudentService students) throws IOException {
+        List<String> rejected = new ArrayList<>();
+        boolean outer = unlogged.get();
+        unlogged.set(Boolean.TRUE);
+        try {
+            log.replay((type, in) -> apply(type, in, courses, students, rejected));
+        } finally {
+            unlogged.set(outer);
+        }
+        return rejected;
+    }
+
+    /**
+     * Run capture with every logged mutation held off, so it sees no
+     * mutation half-applied and none that is missing from the log
+     * @return the log position the captured state covers, for checkpoint(long)
+     */
+    long capture(Runnable capture) throws IOException {
+        checkpointLock.writeLock().lock();
+        try {
+            capture.run();
+            return log.mark();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the records a snapshot covers, keeping those logged after capture()
+     */
+    public void checkpoint(long mark) throws IOException {
+        log.truncate(mark);
+    }
+
+    /**
+     * Held around a mutation and its log record; a no-op without a log
+     */
+    static final class Guard {
+        private static final Guard NONE = new Guard(null);
+
+        private final Lock lock;
+
+        private Guard(Lock lock) {
+            this.lock = lock;
+        }
+
+        void release() {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    static Guard guard(MutationLog log) {
+        if (log == null) {
+            return Guard.NONE;
+        }
+        Lock lock = log.checkpointLock.readLock();
+        lock.lock();
+        return new Guard(lock);
+    }
+
+    // Run mutations that must not be logged, e.g. loading a snapshot; only
+    // the calling thread's mutations are left out
+    void withoutLogging(Runnable action) {
+        boolean outer = unlogged.get();
+        unlogged.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            unlogged.set(outer);
+        }
+    }
+
+    /**
+     * Force every record appended so far to disk
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    // sync() for callers that cannot throw IOException
+    void flush() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync mutation log", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    // Only the services' own rejections are skipped, so one stale record
+    // cannot leave the whole log unreplayable; undecodable records and
+    // unexpected failures still fail the replay
+    private void apply(byte type, DataInputStream in, CourseService courses, StudentService students,
+                       List<String> rejected) throws IOException {
+        Mutation mutation = decode(type, in, courses, students);
+        if (mutation == null) {
+            return;
+        }
+        try {
+            mutation.run();
+        } catch (DuplicateEnrollmentException e) {
+            // Already applied
+        } catch (IllegalArgumentException | MaxCreditLimitExceededException | DuplicateStudentException e) {
+            rejected.add(mutation + ": " + e.getMessage());
+        } catch (Exception e) {
+            throw new IOException("Cannot replay " + mutation, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private record Mutation(String description, Action action) {
+        void run() throws Exception {
+            action.run();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    // Read one record; null when it concerns students and only courses are replayed
+    private Mutation decode(byte type, DataInputStream in, CourseService courses, StudentService students)
+            throws IOException {
+        switch (type) {
+            case ADD_COURSE, UPDATE_COURSE -> {
+                Course course = readCourse(in);
+                return new Mutation("add course " + course.getCode(), () -> courses.addCourse(course));
+            }
+            case DEACTIVATE_COURSE -> {
+                String code = readCode(in).getFullCode();
+                return new Mutation("deactivate course " + code, () -> courses.deactivateCourse(code));
+            }
+            case ADD_STUDENT, UPDATE_STUDENT -> {
+                Student student = readStudent(in);
+                return students == null ? null
+                    : new Mutation("add student " + student.getId(), () -> students.addStudent(student));
+            }
+            case DEACTIVATE_STUDENT -> {
+                String studentId = in.readUTF();
+                return students == null ? null
+                    : new Mutation("deactivate student " + studentId, () -> students.deactivateStudent(studentId));
+            }
+            case ENROLL -> {
+                String studentId = in.readUTF();
+                String code = readCode(in).getFullCode();
+                return students == null ? null
+                    : new Mutation("enroll " + studentId + " in " + code, () -> students.enrollStudent(studentId, code));
+            }
+            case UNENROLL -> {
+                String studentId = in.readUTF();
+                String code = readCode(in).getFullCode();
+                return students == null ? null
+                    : new Mutation("unenroll " + studentId + " from " + code, () -> students.unenrollStudent(studentId, code));
+            }
+            case GRADE -> {
+                String studentId = in.readUTF();
+                String code = readCode(in).getFullCode();
+                Grade grade = GRADES[in.readByte()];
+                return students == null ? null
+                    : new Mutation("grade " + studentId + " in " + code, () -> students.assignGrade(studentId, code, grade));
+            }
+            default -> throw new IOException("Unknown mutation record type " + type);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Encoder encoder) {
+        if (unlogged.get()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            encoder.write(out);
+            out.flush();
+            log.append(type, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot log mutation", e);
+        }
+    }
+
+    private static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        out.writeUTF(student.getId());
+        writeNullable(out, student.getRegNo());
+        writeNullable(out, student.getFullName());
+        writeNullable(out, student.getEmail());
+        out.writeBoolean(student.isActive());
+    }
+
+    private static Student readStudent(DataInputStream in) throws IOException {
+        Student student = new Student(in.readUTF(), readNullable(in), readNullable(in), readNullable(in));
+        student.setActive(in.readBoolean());
+        return student;
+    }
+
+    private static void writeCourse(DataOutputStream out, Course course) throws IOException {
+        out.writeLong(course.getCourseCode().getPacked());
+        writeNullable(out, course.getTitle());
+        out.writeByte(course.getCredits());
+        writeNullable(out, course.getInstructor());
+        out.writeByte(course.getSemester() == null ? -1 : course.getSemester().ordinal());
+        writeNullable(out, course.getDepartment());
+        out.writeBoolean(course.isActive());
+    }
+
+    private static Course readCourse(DataInputStream in) throws IOException {
+        String code = readCode(in).getFullCode();
+        String title = readNullable(in);
+        int credits = in.readByte();
+        String instructor = readNullable(in);
+        int semester = in.readByte();
+        Course course = new Course.Builder()
+            .setCode(code)
+            .setTitle(title)
+            .setCredits(credits)
+            .setInstructor(instructor)
+            .setSemester(semester < 0 ? null : SEMESTERS[semester])
+            .setDepartment(readNullable(in))
+            .build();
+        course.setActive(in.readBoolean());
+        return course;
+    }
+
+    private static CourseCode readCode(DataInputStream in) throws IOException {
+        try {
+            return CourseCode.fromPacked(in.readLong());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt course code in mutation log", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package edu.ccrm.service;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ * The cursor is the id of the last item on the page; pass it back to
+ * Searchable.page to continue after it.
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+    public boolean isEmpty() { return items.isEmpty(); }
+
+    @Override
+    public String toString() {
+        return String.format("Page{items=%d, nextCursor='%s'}", items.size(), nextCursor);
+    }
+}
\ No newline at end of file
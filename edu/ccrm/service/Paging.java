@@ -0,0 +1,38 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination over an ordered id view shared by the services
+ * The cursor is the string form of the last key on the page.
+ */
+final class Paging {
+
+    private Paging() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Read at most pageSize entities from the ordered ids; only the page is materialized
+     */
+    static <K, T> Page<T> page(Iterable<K> orderedIds, int pageSize, Function<K, T> lookup) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        List<T> items = new ArrayList<>(pageSize);
+        K last = null;
+        Iterator<K> ids = orderedIds.iterator();
+        while (items.size() < pageSize && ids.hasNext()) {
+            K id = ids.next();
+            T entity = lookup.apply(id);
+            if (entity != null) {
+                items.add(entity);
+                last = id;
+            }
+        }
+        return new Page<>(items, ids.hasNext() && last != null ? last.toString() : null);
+    }
+}
\ No newline at end of file
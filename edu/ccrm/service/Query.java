@@ -0,0 +1,209 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Typed, inspectable search criteria for Searchable services
+ * Unlike an opaque Predicate, a Query exposes its conditions so a service
+ * can answer them from its indexes and only scan for what is left over.
+ * Active-only filtering is expressed as an equality condition on the
+ * entity's active field.
+ */
+public final class Query<T> {
+    public enum Operator { EQUALS, IN, RANGE }
+
+    private final List<Condition<T>> conditions;
+    private final Field<T, ? extends Comparable<?>> orderBy;
+    private final boolean descending;
+    private final int limit;
+
+    private Query(Builder<T> builder) {
+        this.conditions = List.copyOf(builder.conditions);
+        this.orderBy = builder.orderBy;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public List<Condition<T>> getConditions() { return conditions; }
+    public Field<T, ? extends Comparable<?>> getOrderBy() { return orderBy; }
+    public boolean isDescending() { return descending; }
+    public boolean hasLimit() { return limit >= 0; }
+    public int getLimit() { return limit; }
+
+    /**
+     * All conditions combined, for callers that only accept a Predicate
+     */
+    public Predicate<T> asPredicate() {
+        return entity -> conditions.stream().allMatch(c -> c.test(entity));
+    }
+
+    /**
+     * Apply ordering and limit to already filtered candidates
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<T> orderAndLimit(Stream<T> candidates) {
+        if (orderBy != null) {
+            Comparator<T> comparator = Comparator.comparing(
+                (Function<T, Comparable>) (Function) orderBy.accessor,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+            candidates = candidates.sorted(descending ? comparator.reversed() : comparator);
+        }
+        if (hasLimit()) {
+            candidates = candidates.limit(limit);
+        }
+        return candidates.collect(Collectors.toList());
+    }
+
+    /**
+     * Fallback evaluation: filter every entity, then order and limit
+     */
+    public List<T> scan(Collection<T> entities) {
+        return orderAndLimit(entities.stream().filter(asPredicate()));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Query{");
+        sb.append(conditions.stream().map(Condition::toString).collect(Collectors.joining(" AND ")));
+        if (orderBy != null) {
+            sb.append(", orderBy=").append(orderBy.getName()).append(descending ? " DESC" : " ASC");
+        }
+        if (hasLimit()) {
+            sb.append(", limit=").append(limit);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * A named, typed attribute of an entity. Services recognise the fields
+     * they have indexes for by identity, so fields are declared as constants.
+     */
+    public static final class Field<T, V> {
+        private final String name;
+        private final Function<T, V> accessor;
+
+        private Field(String name, Function<T, V> accessor) {
+            this.name = Objects.requireNonNull(name, "Field name cannot be null");
+            this.accessor = Objects.requireNonNull(accessor, "Field accessor cannot be null");
+        }
+
+        public static <T, V> Field<T, V> of(String name, Function<T, V> accessor) {
+            return new Field<>(name, accessor);
+        }
+
+        public String getName() { return name; }
+        public V valueOf(T entity) { return accessor.apply(entity); }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A single field condition: equality, membership or an inclusive range
+     */
+    public static final class Condition<T> {
+        private final Field<T, ?> field;
+        private final Operator operator;
+        private final Object value;
+        private final Set<?> values;
+        private final Comparable<?> min;
+        private final Comparable<?> max;
+
+        private Condition(Field<T, ?> field, Operator operator, Object value,
+                          Set<?> values, Comparable<?> min, Comparable<?> max) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+            this.values = values;
+            this.min = min;
+            this.max = max;
+        }
+
+        public Field<T, ?> getField() { return field; }
+        public Operator getOperator() { return operator; }
+        public Object getValue() { return value; }
+        public Set<?> getValues() { return values; }
+        public Comparable<?> getMin() { return min; }
+        public Comparable<?> getMax() { return max; }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(T entity) {
+            Object actual = field.valueOf(entity);
+            return switch (operator) {
+                case EQUALS -> Objects.equals(value, actual);
+                case IN -> values.contains(actual);
+                case RANGE -> actual != null
+                        && ((Comparable) min).compareTo(actual) <= 0
+                        && ((Comparable) max).compareTo(actual) >= 0;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return switch (operator) {
+                case EQUALS -> field + " = " + value;
+                case IN -> field + " IN " + values;
+                case RANGE -> field + " BETWEEN " + min + " AND " + max;
+            };
+        }
+    }
+
+    // Builder Pattern Implementation
+    public static class Builder<T> {
+        private final List<Condition<T>> conditions = new ArrayList<>();
+        private Field<T, ? extends Comparable<?>> orderBy;
+        private boolean descending;
+        private int limit = -1;
+
+        public <V> Builder<T> where(Field<T, V> field, V value) {
+            conditions.add(new Condition<>(field, Operator.EQUALS, value, null, null, null));
+            return this;
+        }
+
+        public <V> Builder<T> whereIn(Field<T, V> field, Collection<? extends V> values) {
+            conditions.add(new Condition<>(field, Operator.IN, null, new HashSet<>(values), null, null));
+            return this;
+        }
+
+        public <V extends Comparable<? super V>> Builder<T> whereBetween(Field<T, V> field, V min, V max) {
+            Objects.requireNonNull(min, "Range minimum cannot be null");
+            Objects.requireNonNull(max, "Range maximum cannot be null");
+            conditions.add(new Condition<>(field, Operator.RANGE, null, null, min, max));
+            return this;
+        }
+
+        public Builder<T> orderBy(Field<T, ? extends Comparable<?>> field) {
+            this.orderBy = field;
+            this.descending = false;
+            return this;
+        }
+
+        public Builder<T> orderByDescending(Field<T, ? extends Comparable<?>> field) {
+            this.orderBy = field;
+            this.descending = true;
+            return this;
+        }
+
+        public Builder<T> limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit cannot be negative");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public Query<T> build() {
+            return new Query<>(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package edu.ccrm.service;
+
+import java.util.List;
+
+/**
+ * Describes how a service answered a Query
+ * Returned by Searchable.explain so hot queries can be checked for full scans
+ */
+public final class QueryPlan {
+    public enum Strategy { INDEX, FULL_SCAN, EMPTY }
+
+    private final Strategy strategy;
+    private final String drivingIndex;
+    private final List<String> intersectedIndexes;
+    private final List<String> residualConditions;
+    private final long candidateCount;
+    private final boolean orderedByIndex;
+
+    public QueryPlan(Strategy strategy, String drivingIndex, List<String> intersectedIndexes,
+                     List<String> residualConditions, long candidateCount) {
+        this(strategy, drivingIndex, intersectedIndexes, residualConditions, candidateCount, false);
+    }
+
+    public QueryPlan(Strategy strategy, String drivingIndex, List<String> intersectedIndexes,
+                     List<String> residualConditions, long candidateCount, boolean orderedByIndex) {
+        this.strategy = strategy;
+        this.drivingIndex = drivingIndex;
+        this.intersectedIndexes = List.copyOf(intersectedIndexes);
+        this.residualConditions = List.copyOf(residualConditions);
+        this.candidateCount = candidateCount;
+        this.orderedByIndex = orderedByIndex;
+    }
+
+    public static QueryPlan fullScan(Query<?> query, long rowCount) {
+        List<String> residual = query.getConditions().stream().map(Object::toString).toList();
+        return new QueryPlan(Strategy.FULL_SCAN, null, List.of(), residual, rowCount);
+    }
+
+    public Strategy getStrategy() { return strategy; }
+    public String getDrivingIndex() { return drivingIndex; }
+    public List<String> getIntersectedIndexes() { return intersectedIndexes; }
+    public List<String> getResidualConditions() { return residualConditions; }
+    public long getCandidateCount() { return candidateCount; }
+    public boolean isOrderedByIndex() { return orderedByIndex; }
+
+    @Override
+    public String toString() {
+        return String.format("QueryPlan{strategy=%s, index=%s, intersect=%s, residual=%s, candidates=%d, order=%s}",
+                           strategy, drivingIndex, intersectedIndexes, residualConditions, candidateCount,
+                           orderedByIndex ? "index" : "sort");
+    }
+}
\ No newline at end of file
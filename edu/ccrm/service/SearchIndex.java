@@ -0,0 +1,447 @@
+package edu.ccrm.service;
+
+import edu.ccrm.util.PostingList;
+import java.util.*;
+
+/**
+ * Incremental full-text index over short fields (names, emails, titles)
+ * Terms live in a character trie for prefix lookups and in a trigram index
+ * for substring and typo-tolerant matches; each term carries a posting list
+ * of the documents containing it. Queries score every matched term, require
+ * each query token to match, and keep only the best N documents. Substring
+ * and typo matches are only consulted when exact and prefix matches do not
+ * fill the requested page.
+ *
+ * Terms whose documents are all gone stay in the dictionary with empty
+ * postings and are skipped at query time.
+ */
+class SearchIndex {
+    private static final double EXACT = 3.0;
+    private static final double PREFIX = 1.0; // plus up to 1.0 for how much of the term the prefix covers
+    private static final double SUBSTRING = 1.0;
+    private static final double FUZZY = 0.9;  // scaled by trigram similarity
+    private static final double MIN_SIMILARITY = 0.5;
+    private static final int MAX_PREFIX_TERMS = 256;
+    private static final PostingList EMPTY = new PostingList();
+
+    // Documents, by dense ordinal
+    private final Map<String, Integer> docs = new HashMap<>();
+    private final List<String> docIds = new ArrayList<>();
+    private final List<int[]> docTerms = new ArrayList<>();
+
+    // Term dictionary
+    private final TrieNode root = new TrieNode();
+    private final List<String> terms = new ArrayList<>();
+    private final List<PostingList> termDocs = new ArrayList<>();
+    private final Map<String, PostingList> trigramTerms = new HashMap<>();
+
+    /**
+     * Index (or re-index) a document under the text of its fields
+     */
+    public synchronized void put(String id, String... fields) {
+        Integer existing = docs.get(id);
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            unlink(doc);
+        } else {
+            doc = docIds.size();
+            docs.put(id, doc);
+            docIds.add(id);
+            docTerms.add(null);
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            tokenize(field, tokens);
+        }
+        int[] termIds = new int[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            int term = termId(token);
+            termDocs.get(term).add(doc);
+            termIds[i++] = term;
+        }
+        docTerms.set(doc, termIds);
+    }
+
+    public synchronized void remove(String id) {
+        Integer doc = docs.remove(id);
+        if (doc != null) {
+            unlink(doc);
+            docIds.set(doc, null);
+            docTerms.set(doc, null);
+        }
+    }
+
+    public synchronized void clear() {
+        docs.clear();
+        docIds.clear();
+        docTerms.clear();
+        root.labels = TrieNode.NO_LABELS;
+        root.children = TrieNode.NO_CHILDREN;
+        root.term = -1;
+        terms.clear();
+        termDocs.clear();
+        trigramTerms.clear();
+    }
+
+    /**
+     * Ids of the best-matching documents, best first
+     * @param limit maximum number of ids to return
+     */
+    public synchronized List<String> search(String query, int limit) {
+        if (query == null || limit < 1) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : query.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        if (tokens.size() == 1) {
+            // Prefix hits outrank substring and fuzzy ones, so a full page of them is final
+            Map<Integer, Double> termScores = new HashMap<>();
+            matchPrefix(tokens.get(0), termScores);
+            List<String> page = topByTerm(termScores, limit);
+            if (page.size() == limit) {
+                return page;
+            }
+            matchTrigrams(tokens.get(0), termScores);
+            return topByTerm(termScores, limit);
+        }
+        // Strict pass: AND the exact/prefix document sets of every token, smallest first
+        List<Map<Integer, Double>> prefixTerms = new ArrayList<>();
+        List<PostingList> prefixDocs = new ArrayList<>();
+        String driver = tokens.get(0);
+        for (String token : tokens) {
+            Map<Integer, Double> termScores = new HashMap<>();
+            matchPrefix(token, termScores);
+            PostingList docs = docsOf(termScores.keySet());
+            if (prefixDocs.isEmpty() || docs.cardinality() < prefixDocs.get(0).cardinality()) {
+                driver = token;
+                prefixDocs.add(0, docs);
+            } else {
+                prefixDocs.add(docs);
+            }
+            prefixTerms.add(termScores);
+        }
+        PostingList strict = prefixDocs.get(0);
+        for (int i = 1; i < prefixDocs.size() && !strict.isEmpty(); i++) {
+            strict = strict.and(prefixDocs.get(i));
+        }
+        if (strict.cardinality() >= limit) {
+            Map<Integer, Double> scores = new HashMap<>();
+            strict.iterator().forEachRemaining((int doc) -> {
+                double total = 0.0;
+                for (Map<Integer, Double> termScores : prefixTerms) {
+                    double best = 0.0;
+                    for (int term : docTerms.get(doc)) {
+                        best = Math.max(best, termScores.getOrDefault(term, 0.0));
+                    }
+                    total += best;
+                }
+                scores.put(doc, total);
+            });
+            return top(scores, limit);
+        }
+        // Too few strict hits: widen to substring and typo matches. Only the
+        // most selective token goes through the index; the others are scored
+        // against each candidate's own terms
+        Map<Integer, Double> driverTerms = new HashMap<>();
+        matchPrefix(driver, driverTerms);
+        matchTrigrams(driver, driverTerms);
+        List<String> others = new ArrayList<>(tokens);
+        others.remove(driver);
+        // Many candidates share terms (surnames, domains), so each term is scored once per token
+        List<Map<Integer, Double>> memo = new ArrayList<>();
+        for (int i = 0; i < others.size(); i++) {
+            memo.add(new HashMap<>());
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        docsOf(driverTerms.keySet()).iterator().forEachRemaining((int doc) -> {
+            double total = 0.0;
+            for (int term : docTerms.get(doc)) {
+                total = Math.max(total, driverTerms.getOrDefault(term, 0.0));
+            }
+            for (int i = 0; i < others.size(); i++) {
+                String token = others.get(i);
+                double best = 0.0;
+                for (int term : docTerms.get(doc)) {
+                    best = Math.max(best, memo.get(i).computeIfAbsent(term, t -> score(token, terms.get(t))));
+                }
+                if (best == 0.0) {
+                    return; // every token must match
+                }
+                total += best;
+            }
+            scores.put(doc, total);
+        });
+        return top(scores, limit);
+    }
+
+    public synchronized int size() {
+        return docs.size();
+    }
+
+    // Terms starting with the token; an exact match scores highest
+    private void matchPrefix(String token, Map<Integer, Double> matches) {
+        TrieNode node = find(token);
+        if (node != null) {
+            List<Integer> prefixed = new ArrayList<>();
+            collect(node, prefixed);
+            for (int term : prefixed) {
+                int length = terms.get(term).length();
+                double score = length == token.length() ? EXACT : PREFIX + (double) token.length() / length;
+                matches.merge(term, score, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Terms containing the token or spelled close to it, by shared trigrams
+     * A term sharing at least minShared of the q query trigrams must appear
+     * in one of the q - minShared + 1 rarest ones, so only those are scanned
+     * for candidates; the rest are probed per candidate.
+     */
+    private void matchTrigrams(String token, Map<Integer, Double> matches) {
+        String[] grams = trigrams(token);
+        if (grams.length < 3) {
+            return;
+        }
+        List<PostingList> lists = new ArrayList<>(grams.length);
+        for (String gram : new LinkedHashSet<>(Arrays.asList(grams))) {
+            lists.add(trigramTerms.getOrDefault(gram, EMPTY));
+        }
+        lists.sort(Comparator.comparingInt(PostingList::cardinality));
+        int q = lists.size();
+        int minShared = Math.max(1, (int) Math.ceil(MIN_SIMILARITY * (q + 1) / 2));
+        PostingList candidates = new PostingList();
+        for (int i = 0; i <= q - minShared; i++) {
+            candidates = candidates.or(lists.get(i));
+        }
+        candidates.iterator().forEachRemaining((int term) -> {
+            int shared = 0;
+            for (PostingList list : lists) {
+                if (list.contains(term)) {
+                    shared++;
+                }
+            }
+            String text = terms.get(term);
+            // Dice coefficient; a term of length n has n padded trigrams
+            double similarity = Math.min(1.0, 2.0 * shared / (q + text.length()));
+            double score = text.contains(token) ? SUBSTRING : similarity >= MIN_SIMILARITY ? FUZZY * similarity : 0.0;
+            if (score > 0.0) {
+                matches.merge(term, score, Math::max);
+            }
+        });
+    }
+
+    // Union of the terms' documents; copies the largest list once and adds the rest into it
+    private PostingList docsOf(Collection<Integer> termIds) {
+        PostingList largest = EMPTY;
+        for (int term : termIds) {
+            if (termDocs.get(term).cardinality() > largest.cardinality()) {
+                largest = termDocs.get(term);
+            }
+        }
+        PostingList result = largest.or(EMPTY);
+        for (int term : termIds) {
+            PostingList docs = termDocs.get(term);
+            if (docs != largest) {
+                docs.iterator().forEachRemaining((int doc) -> result.add(doc));
+            }
+        }
+        return result;
+    }
+
+    // The score matchPrefix and matchTrigrams would give this term, computed directly
+    private static double score(String token, String text) {
+        if (text.startsWith(token)) {
+            return text.length() == token.length() ? EXACT : PREFIX + (double) token.length() / text.length();
+        }
+        if (token.length() < 3) {
+            return 0.0;
+        }
+        if (text.contains(token)) {
+            return SUBSTRING;
+        }
+        Set<String> grams = new HashSet<>(Arrays.asList(trigrams(token)));
+        int shared = 0;
+        for (String gram : new HashSet<>(Arrays.asList(trigrams(text)))) {
+            if (grams.contains(gram)) {
+                shared++;
+            }
+        }
+        double similarity = Math.min(1.0, 2.0 * shared / (grams.size() + text.length()));
+        return similarity >= MIN_SIMILARITY ? FUZZY * similarity : 0.0;
+    }
+
+    /**
+     * Single-token top N without scoring every document: all documents of a
+     * term share its score, so terms are taken best first and only the
+     * lowest document ordinals of each score level are read
+     */
+    private List<String> topByTerm(Map<Integer, Double> termScores, int limit) {
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(termScores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        Set<Integer> seen = new HashSet<>();
+        List<String> result = new ArrayList<>(limit);
+        int i = 0;
+        while (i < ranked.size() && result.size() < limit) {
+            double level = ranked.get(i).getValue();
+            int needed = limit - result.size();
+            TreeSet<Integer> levelDocs = new TreeSet<>();
+            for (; i < ranked.size() && ranked.get(i).getValue() == level; i++) {
+                PrimitiveIterator.OfInt docs = termDocs.get(ranked.get(i).getKey()).iterator();
+                int taken = 0;
+                while (docs.hasNext() && taken < needed) {
+                    int doc = docs.nextInt();
+                    if (!seen.contains(doc) && levelDocs.add(doc)) {
+                        taken++;
+                    }
+                }
+            }
+            for (int doc : levelDocs) {
+                if (result.size() == limit) {
+                    break;
+                }
+                seen.add(doc);
+                result.add(docIds.get(doc));
+            }
+        }
+        return result;
+    }
+
+    // Bounded heap of the best documents; ties go to the earlier indexed one
+    private List<String> top(Map<Integer, Double> scores, int limit) {
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Integer, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        String[] ids = new String[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = docIds.get(best.poll().getKey());
+        }
+        return Arrays.asList(ids);
+    }
+
+    private void unlink(int doc) {
+        for (int term : docTerms.get(doc)) {
+            termDocs.get(term).remove(doc);
+        }
+    }
+
+    private int termId(String token) {
+        TrieNode node = root;
+        for (int i = 0; i < token.length(); i++) {
+            node = node.childOrAdd(token.charAt(i));
+        }
+        if (node.term < 0) {
+            node.term = terms.size();
+            terms.add(token);
+            termDocs.add(new PostingList());
+            for (String gram : trigrams(token)) {
+                trigramTerms.computeIfAbsent(gram, g -> new PostingList()).add(node.term);
+            }
+        }
+        return node.term;
+    }
+
+    private TrieNode find(String prefix) {
+        TrieNode node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    // Live terms under the node in lexicographic order, up to MAX_PREFIX_TERMS
+    private void collect(TrieNode node, List<Integer> out) {
+        Deque<TrieNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty() && out.size() < MAX_PREFIX_TERMS) {
+            TrieNode current = stack.pop();
+            if (current.term >= 0 && !termDocs.get(current.term).isEmpty()) {
+                out.add(current.term);
+            }
+            for (int i = current.children.length - 1; i >= 0; i--) {
+                stack.push(current.children[i]);
+            }
+        }
+    }
+
+    /**
+     * Lower-case whitespace tokens, plus the alphanumeric parts of tokens
+     * such as emails and registration numbers
+     */
+    private static void tokenize(String text, Set<String> out) {
+        if (text == null) {
+            return;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            out.add(token);
+            for (String part : token.split("[^\\p{Alnum}]+")) {
+                if (!part.isEmpty()) {
+                    out.add(part);
+                }
+            }
+        }
+    }
+
+    // Trigrams of the term padded with a boundary marker on each side
+    private static String[] trigrams(String term) {
+        String padded = "\u0001" + term + "\u0001";
+        String[] grams = new String[Math.max(0, padded.length() - 2)];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = padded.substring(i, i + 3);
+        }
+        return grams;
+    }
+
+    private static final class TrieNode {
+        private static final char[] NO_LABELS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        // Sorted edge labels and their children
+        private char[] labels = NO_LABELS;
+        private TrieNode[] children = NO_CHILDREN;
+        private int term = -1;
+
+        TrieNode child(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            return i >= 0 ? children[i] : null;
+        }
+
+        TrieNode childOrAdd(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] grownLabels = new char[labels.length + 1];
+            TrieNode[] grownChildren = new TrieNode[children.length + 1];
+            System.arraycopy(labels, 0, grownLabels, 0, at);
+            System.arraycopy(children, 0, grownChildren, 0, at);
+            System.arraycopy(labels, at, grownLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, grownChildren, at + 1, children.length - at);
+            TrieNode child = new TrieNode();
+            grownLabels[at] = label;
+            grownChildren[at] = child;
+            labels = grownLabels;
+            children = grownChildren;
+            return child;
+        }
+    }
+}
\ No newline at end of file
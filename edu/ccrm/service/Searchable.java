@@ -2,6 +2,7 @@ package edu.ccrm.service;
 
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Generic interface for searchable entities
@@ -12,6 +13,26 @@ public interface Searchable<T> {
     List<T> findBy(Predicate<T> criteria);
     T findById(String id);
     
+    /**
+     * Keyset pagination in ascending id order
+     * @param afterId cursor from the previous page, or null for the first page
+     */
+    Page<T> page(String afterId, int pageSize);
+    
+    // Lazy view of all entities; services override it to avoid the copy
+    default Stream<T> stream() {
+        return findAll().stream();
+    }
+    
+    // Typed criteria; services with indexes override these to avoid the scan
+    default List<T> findBy(Query<T> query) {
+        return query.scan(findAll());
+    }
+    
+    default QueryPlan explain(Query<T> query) {
+        return QueryPlan.fullScan(query, count());
+    }
+    
     // Default method with diamond problem potential
     default boolean exists(String id) {
         return findById(id) != null;
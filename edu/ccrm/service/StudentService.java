@@ -1,98 +1,452 @@
 package edu.ccrm.service;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.*;
+import edu.ccrm.exceptions.DuplicateEnrollmentException;
+import edu.ccrm.exceptions.DuplicateStudentException;
+import edu.ccrm.exceptions.MaxCreditLimitExceededException;
+import edu.ccrm.io.EnrollmentFile;
+import edu.ccrm.io.JsonDataFile;
+import edu.ccrm.io.SnapshotFile;
 import edu.ccrm.util.Validators;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Student Service implementing business logic
  * Demonstrates polymorphism, streams, and lambda expressions
+ * Safe for concurrent use: each enrollment change runs under the enrolling
+ * student's lock stripe, so unrelated students enroll in parallel.
+ * Aggregate reports scan the columnar projection kept by the enrollment store.
+ * Registration numbers and emails (case-insensitive) are unique: both are
+ * indexed to the owning student id, and claimed atomically on add and update.
  */
 public class StudentService implements DataService<Student> {
     private final Map<String, Student> students;
-    private final Map<String, Enrollment> enrollments;
+    private final NavigableSet<String> studentIds;
+    private final Map<String, String> byRegNo;
+    private final Map<String, String> byEmail;
+    private final EnrollmentStore enrollments;
+    private final GpaLeaderboard leaderboard;
+    private final SearchIndex searchIndex;
+    private final AtomicLongArray gradeCounts;
+    private final CourseService courseService;
+    private final int maxCreditsPerSemester;
+    private volatile MutationLog mutationLog;
+    private volatile Path snapshotFile;
+    private volatile boolean searchIndexStale;
+    private volatile List<String> skippedRecords = List.of();
     
     public StudentService() {
-        this.students = new HashMap<>();
-        this.enrollments = new HashMap<>();
+        this(new CourseService());
+    }
+    
+    public StudentService(CourseService courseService) {
+        this(courseService, new EnrollmentStore());
+    }
+    
+    /**
+     * Service over an existing enrollment store, e.g. one reopened from a
+     * mapped file; students added later pick up their stored enrollments
+     */
+    public StudentService(CourseService courseService, EnrollmentStore enrollments) {
+        this.students = new ConcurrentHashMap<>();
+        this.studentIds = new ConcurrentSkipListSet<>();
+        this.byRegNo = new ConcurrentHashMap<>();
+        this.byEmail = new ConcurrentHashMap<>();
+        this.enrollments = enrollments;
+        this.leaderboard = new GpaLeaderboard();
+        this.searchIndex = new SearchIndex();
+        this.gradeCounts = new AtomicLongArray(Grade.values().length);
+        this.courseService = courseService;
+        this.maxCreditsPerSemester = AppConfig.getInstance().getMaxCreditsPerSemester();
+        courseService.addChangeListener(this::courseChanged);
+        enrollments.stream()
+                .filter(e -> e.getGrade() != null)
+                .forEach(e -> gradeCounts.incrementAndGet(e.getGrade().ordinal()));
+    }
+    
+    /**
+     * Record every later mutation in the log; restore() replays it
+     */
+    public void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+    
+    /**
+     * Where backup() writes, and restore() reads, the binary snapshot
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
     }
     
     // CRUD Operations
+    /**
+     * @throws DuplicateStudentException if the registration number or email
+     *         belongs to another student
+     */
     public void addStudent(Student student) {
-        validateData(student);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            validateData(student);
+            synchronized (enrollments.lockFor(student.getId())) {
+                register(student);
+                if (mutationLog != null) {
+                    mutationLog.studentAdded(student);
+                }
+            }
+        } finally {
+            guard.release();
+        }
+    }
+    
+    // Store and index a validated student; caller holds its lock
+    private void register(Student student) {
+        claimKeys(student, students.get(student.getId()));
         students.put(student.getId(), student);
+        studentIds.add(student.getId());
+        attachEnrollments(student);
+        refreshRanking(student);
+        indexText(student);
     }
     
     public void updateStudent(Student student) {
-        if (!exists(student.getId())) {
-            throw new IllegalArgumentException("Student not found: " + student.getId());
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            validateData(student);
+            synchronized (enrollments.lockFor(student.getId())) {
+                Student previous = students.get(student.getId());
+                if (previous == null) {
+                    throw new IllegalArgumentException("Student not found: " + student.getId());
+                }
+                claimKeys(student, previous);
+                students.put(student.getId(), student);
+                attachEnrollments(student);
+                refreshRanking(student);
+                indexText(student);
+                if (mutationLog != null) {
+                    mutationLog.studentUpdated(student);
+                }
+            }
+        } finally {
+            guard.release();
         }
-        validateData(student);
-        students.put(student.getId(), student);
+    }
+    
+    /**
+     * Add a batch, checking uniqueness against the registry and within the
+     * batch in one pass before anything is stored
+     * @throws DuplicateStudentException on the first conflict; nothing is added
+     */
+    public void addStudents(Collection<Student> batch) {
+        Map<String, String> batchRegNos = new HashMap<>();
+        Map<String, String> batchEmails = new HashMap<>();
+        for (Student student : batch) {
+            validateData(student);
+            checkUnique("Registration number", regNoKey(student.getRegNo()), student.getId(), byRegNo, batchRegNos);
+            checkUnique("Email", emailKey(student.getEmail()), student.getId(), byEmail, batchEmails);
+        }
+        batch.forEach(this::addStudent);
+    }
+    
+    public Student findByRegNo(String regNo) {
+        String id = regNo == null ? null : byRegNo.get(regNoKey(regNo));
+        return id == null ? null : students.get(id);
+    }
+    
+    public Student findByEmail(String email) {
+        String id = email == null ? null : byEmail.get(emailKey(email));
+        return id == null ? null : students.get(id);
     }
     
     public void deactivateStudent(String studentId) {
-        Student student = findById(studentId);
-        if (student != null) {
-            student.setActive(false);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            Student student = findById(studentId);
+            if (student != null) {
+                synchronized (enrollments.lockFor(studentId)) {
+                    student.setActive(false);
+                    refreshRanking(student);
+                    if (mutationLog != null) {
+                        mutationLog.studentDeactivated(studentId);
+                    }
+                }
+            }
+        } finally {
+            guard.release();
         }
     }
     
     // Enrollment Management
     public void enrollStudent(String studentId, String courseCode) throws Exception {
-        Student student = findById(studentId);
-        if (student == null) {
-            throw new IllegalArgumentException("Student not found: " + studentId);
-        }
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            Student student = findById(studentId);
+            if (student == null) {
+                throw new IllegalArgumentException("Student not found: " + studentId);
+            }
         
-        // Business rule: Check max credits per semester (example: 24 credits)
-        int currentCredits = calculateCurrentCredits(studentId);
-        if (currentCredits >= 24) {
-            throw new Exception("Maximum credit limit exceeded for student: " + studentId);
-        }
+            CourseCode code = CourseCode.tryParse(courseCode);
+            if (code == null) {
+                throw new IllegalArgumentException("Course not available: " + courseCode);
+            }
         
-        // Check for duplicate enrollment
-        String enrollmentKey = studentId + "-" + courseCode;
-        if (enrollments.containsKey(enrollmentKey)) {
-            throw new Exception("Student already enrolled in course: " + courseCode);
+            // Duplicate check, credit check and insert are atomic per student
+            synchronized (enrollments.lockFor(studentId)) {
+                // Read under the lock, so the charge uses the course as it is now
+                Course course = courseService.findById(code);
+                if (course == null || !course.isActive()) {
+                    throw new IllegalArgumentException("Course not available: " + courseCode);
+                }
+            
+                // Check for duplicate enrollment
+                if (enrollments.contains(studentId, code)) {
+                    throw new DuplicateEnrollmentException(studentId, courseCode);
+                }
+            
+                // Business rule: max credits per semester, from the maintained counter
+                int newCredits = enrollments.creditsFor(studentId, course.getSemester()) + course.getCredits();
+                if (newCredits > maxCreditsPerSemester) {
+                    throw new MaxCreditLimitExceededException(studentId, newCredits, maxCreditsPerSemester);
+                }
+            
+                // Create enrollment
+                enrollments.add(studentId, code, course.getSemester(), course.getCredits());
+                // A course change whose roster pass missed the new enrollment
+                // is visible once add() has published it to the roster
+                Course current = courseService.findById(code);
+                if (current != course || !current.isActive()) {
+                    boolean charged = current != null && current.isActive();
+                    enrollments.recharge(studentId, code, charged ? current.getSemester() : null,
+                                         current == null ? 0 : current.getCredits());
+                }
+                enrollments.columns().setCourseDepartment(code.getSymbol(), Symbols.DEPARTMENTS.intern(course.getDepartment()));
+                student.enrollCourse(code.getFullCode());
+                if (mutationLog != null) {
+                    mutationLog.enrolled(studentId, code);
+                }
+            }
+        } finally {
+            guard.release();
         }
-        
-        // Create enrollment
-        Enrollment enrollment = new Enrollment(studentId, courseCode);
-        enrollments.put(enrollmentKey, enrollment);
-        student.enrollCourse(courseCode);
     }
     
     public void unenrollStudent(String studentId, String courseCode) {
-        String enrollmentKey = studentId + "-" + courseCode;
-        Enrollment enrollment = enrollments.get(enrollmentKey);
-        if (enrollment != null) {
-            enrollment.deactivate();
-            Student student = findById(studentId);
-            if (student != null) {
-                student.unenrollCourse(courseCode);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            CourseCode code = CourseCode.tryParse(courseCode);
+            if (code == null) {
+                return;
             }
+            synchronized (enrollments.lockFor(studentId)) {
+                if (enrollments.drop(studentId, code)) {
+                    Student student = findById(studentId);
+                    if (student != null) {
+                        student.unenrollCourse(code.getFullCode());
+                        refreshRanking(student);
+                    }
+                    if (mutationLog != null) {
+                        mutationLog.unenrolled(studentId, code);
+                    }
+                }
+            }
+        } finally {
+            guard.release();
         }
     }
     
     public void assignGrade(String studentId, String courseCode, Grade grade) {
-        String enrollmentKey = studentId + "-" + courseCode;
-        Enrollment enrollment = enrollments.get(enrollmentKey);
-        if (enrollment != null && enrollment.isActive()) {
-            enrollment.assignGrade(grade);
-            Student student = findById(studentId);
-            if (student != null) {
-                student.assignGrade(courseCode, grade);
+        MutationLog.Guard guard = MutationLog.guard(mutationLog);
+        try {
+            CourseCode code = CourseCode.tryParse(courseCode);
+            if (code == null) {
+                return;
+            }
+            synchronized (enrollments.lockFor(studentId)) {
+                if (enrollments.isActive(studentId, code)) {
+                    Grade previous = enrollments.gradeOf(studentId, code);
+                    if (previous != null) {
+                        gradeCounts.decrementAndGet(previous.ordinal());
+                    }
+                    gradeCounts.incrementAndGet(grade.ordinal());
+                    enrollments.grade(studentId, code, grade);
+                    Student student = findById(studentId);
+                    if (student != null) {
+                        Course course = courseService.findById(code);
+                        student.assignGrade(code.getFullCode(), grade, course == null ? 0 : course.getCredits());
+                        refreshRanking(student);
+                    }
+                    if (mutationLog != null) {
+                        mutationLog.graded(studentId, code, grade);
+                    }
+                }
+            }
+        } finally {
+            guard.release();
+        }
+    }
+    
+    // Transcript and roster queries, O(number of enrollments returned)
+    public List<Enrollment> getEnrollmentsForStudent(String studentId) {
+        return enrollments.forStudent(studentId);
+    }
+    
+    public List<Enrollment> getCourseRoster(String courseCode) {
+        CourseCode code = CourseCode.tryParse(courseCode);
+        return code == null ? List.of() : enrollments.forCourse(code);
+    }
+    
+    /**
+     * Students whose name, email, registration number or id match the text,
+     * by prefix, substring or close spelling; best matches first
+     */
+    public List<Student> search(String text, int limit) {
+        if (searchIndexStale) {
+            rebuildSearchIndex();
+        }
+        return searchIndex.search(text, limit).stream()
+                .map(students::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Take the student's registration number and email, then release the
+     * ones the previous version held; a conflict leaves both indexes unchanged
+     */
+    private void claimKeys(Student student, Student previous) {
+        String id = student.getId();
+        String regNo = regNoKey(student.getRegNo());
+        String email = emailKey(student.getEmail());
+        boolean claimedRegNo = claim(byRegNo, "Registration number", regNo, id);
+        try {
+            claim(byEmail, "Email", email, id);
+        } catch (DuplicateStudentException e) {
+            if (claimedRegNo) {
+                byRegNo.remove(regNo, id);
+            }
+            throw e;
+        }
+        if (previous != null) {
+            String oldRegNo = regNoKey(previous.getRegNo());
+            String oldEmail = emailKey(previous.getEmail());
+            if (oldRegNo != null && !oldRegNo.equals(regNo)) {
+                byRegNo.remove(oldRegNo, id);
+            }
+            if (oldEmail != null && !oldEmail.equals(email)) {
+                byEmail.remove(oldEmail, id);
+            }
+        }
+    }
+    
+    // @return true if the key was newly claimed, false if the student already held it
+    private static boolean claim(Map<String, String> index, String field, String key, String id) {
+        if (key == null) {
+            return false;
+        }
+        String owner = index.putIfAbsent(key, id);
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateStudentException(field, key, owner);
+        }
+        return owner == null;
+    }
+    
+    private static void checkUnique(String field, String key, String id,
+                                    Map<String, String> stored, Map<String, String> batch) {
+        if (key == null) {
+            return;
+        }
+        String owner = stored.get(key);
+        if (owner == null || owner.equals(id)) {
+            owner = batch.putIfAbsent(key, id);
+        }
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateStudentException(field, key, owner);
+        }
+    }
+    
+    private static String regNoKey(String regNo) {
+        return regNo == null || regNo.isBlank() ? null : regNo.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private static String emailKey(String email) {
+        return email == null || email.isBlank() ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    // Changes made through Student setters show up in search after updateStudent
+    private void indexText(Student student) {
+        if (!searchIndexStale) {
+            searchIndex.put(student.getId(), student.getFullName(), student.getEmail(), student.getRegNo(), student.getId());
+        }
+    }
+    
+    // Students added while this runs index themselves; re-putting one is harmless
+    private synchronized void rebuildSearchIndex() {
+        if (searchIndexStale) {
+            searchIndexStale = false;
+            for (Student student : students.values()) {
+                indexText(student);
             }
         }
     }
     
-    private int calculateCurrentCredits(String studentId) {
-        // Mock implementation - would integrate with CourseService
-        return 18; // Example current credits
+    // Replay the stored active enrollments and grades onto a newly attached Student; caller holds its lock
+    private void attachEnrollments(Student student) {
+        for (Enrollment enrollment : enrollments.forStudent(student.getId())) {
+            attachEnrollment(student, enrollment);
+        }
+    }
+    
+    private void attachEnrollment(Student student, Enrollment enrollment) {
+        if (enrollment.isActive()) {
+            student.enrollCourse(enrollment.getCourseCode());
+            if (enrollment.getGrade() != null) {
+                Course course = courseService.findById(enrollment.getCourseCode());
+                student.assignGrade(enrollment.getCourseCode(), enrollment.getGrade(),
+                                    course == null ? 0 : course.getCredits());
+            }
+        }
+    }
+    
+    // Caller holds the student's lock, so leaderboard and column updates for one student stay ordered
+    private void refreshRanking(Student student) {
+        if (student.isActive()) {
+            leaderboard.update(student.getId(), student.calculateGPA());
+        } else {
+            leaderboard.remove(student.getId());
+        }
+        enrollments.columns().updateStudent(Symbols.STUDENT_IDS.intern(student.getId()),
+                                            student.isActive(), student.calculateGPA());
+    }
+    
+    public int getCurrentCredits(String studentId, Semester semester) {
+        return enrollments.creditsFor(studentId, semester);
+    }
+    
+    /**
+     * Re-charge the active enrollments of a changed course; a deactivated
+     * course no longer counts towards its students' credit load
+     */
+    private void courseChanged(Course course) {
+        Semester semester = course.isActive() ? course.getSemester() : null;
+        enrollments.columns().setCourseDepartment(course.getCodeSymbol(), Symbols.DEPARTMENTS.intern(course.getDepartment()));
+        for (Enrollment enrollment : enrollments.forCourse(course.getCourseCode())) {
+            synchronized (enrollments.lockFor(enrollment.getStudentId())) {
+                enrollments.recharge(enrollment.getStudentId(), course.getCourseCode(), semester, course.getCredits());
+            }
+        }
     }
     
     // Interface implementations
@@ -103,14 +457,27 @@ public class StudentService implements DataService<Student> {
     
     @Override
     public void save() {
-        // Implementation would persist to file/database
+        // Mutations are already in the log; make them durable along with the mapped enrollment store
         System.out.println("Saving " + students.size() + " students...");
+        enrollments.flush();
+        if (mutationLog != null) {
+            mutationLog.flush();
+        }
     }
     
     @Override
     public void delete() {
         students.clear();
+        studentIds.clear();
+        byRegNo.clear();
+        byEmail.clear();
         enrollments.clear();
+        leaderboard.clear();
+        searchIndex.clear();
+        searchIndexStale = false;
+        for (int i = 0; i < gradeCounts.length(); i++) {
+            gradeCounts.set(i, 0);
+        }
     }
     
     @Override
@@ -118,6 +485,21 @@ public class StudentService implements DataService<Student> {
         return new ArrayList<>(students.values());
     }
     
+    @Override
+    public Stream<Student> stream() {
+        return students.values().stream();
+    }
+    
+    @Override
+    public long count() {
+        return students.size();
+    }
+    
+    @Override
+    public Page<Student> page(String afterId, int pageSize) {
+        return Paging.page(afterId == null ? studentIds : studentIds.tailSet(afterId, false), pageSize, students::get);
+    }
+    
     @Override
     public List<Student> findBy(Predicate<Student> criteria) {
         return students.values().stream()
@@ -138,42 +520,309 @@ public class StudentService implements DataService<Student> {
         if (!Validators.isValidEmail(student.getEmail())) {
             throw new IllegalArgumentException("Invalid email format");
         }
+        // A mapped enrollment store keeps the id inline, so reject what it cannot hold
+        if (student.getId() != null && !enrollments.acceptsStudentId(student.getId())) {
+            throw new IllegalArgumentException("Student ID must be at most "
+                    + EnrollmentFile.MAX_STUDENT_ID_BYTES + " bytes in UTF-8 when enrollments are kept in a file");
+        }
         // Additional validations...
     }
     
+    /**
+     * Write courses, students and enrollments to the snapshot file, then
+     * drop the mutation log records it now covers. Logged mutations wait
+     * while the state is copied; those that follow stay in the log.
+     */
     @Override
     public void backup() {
         System.out.println("Backing up student data...");
+        Path target = snapshotFile;
+        if (target == null) {
+            return;
+        }
+        SnapshotFile.Writer writer = SnapshotFile.writer();
+        Runnable capture = () -> {
+            courseService.stream().forEach(writer::addCourse);
+            students.values().forEach(writer::addStudent);
+            enrollments.stream().forEach(writer::addEnrollment);
+        };
+        MutationLog log = mutationLog;
+        try {
+            long mark = 0;
+            if (log != null) {
+                mark = log.capture(capture);
+            } else {
+                capture.run();
+            }
+            writer.write(target);
+            enrollments.flush();
+            if (log != null) {
+                log.checkpoint(mark);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
     }
     
+    /**
+     * Load the last snapshot, courses included, then replay the mutation
+     * log on top of it. Every record is decoded and indexed, so this takes
+     * time linear in the size of the registry.
+     */
     @Override
     public void restore() {
         System.out.println("Restoring student data...");
+        Path source = snapshotFile;
+        MutationLog log = mutationLog;
+        try {
+            if (source != null && Files.exists(source)) {
+                SnapshotFile snapshot = SnapshotFile.open(source);
+                if (log != null) {
+                    log.withoutLogging(() -> load(snapshot));
+                } else {
+                    load(snapshot);
+                }
+            }
+            if (log != null) {
+                skippedRecords = log.replay(courseService, this);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore student data", e);
+        }
+    }
+    
+    /**
+     * Log records the last restore() skipped because the service rejected
+     * them, e.g. an enrollment in a course that is no longer active
+     */
+    public List<String> getSkippedRecords() {
+        return skippedRecords;
+    }
+    
+    // One pass per section, so restoring is linear in the snapshot size.
+    // Enrollments go in before their students, so register() attaches them.
+    // Saved students were validated when first added, and the search index
+    // is built by the first search rather than once per student
+    private void load(SnapshotFile snapshot) {
+        snapshot.readCourses(courseService::addCourse);
+        searchIndexStale = true;
+        snapshot.readEnrollments(this::loadEnrollment);
+        snapshot.readStudents(this::loadStudent);
+    }
+    
+    private void loadEnrollment(Enrollment enrollment) {
+        Course course = courseService.findById(enrollment.getCourseCode());
+        Semester semester = course != null && course.isActive() ? course.getSemester() : null;
+        int credits = course == null ? 0 : course.getCredits();
+        synchronized (enrollments.lockFor(enrollment.getStudentId())) {
+            if (!enrollments.restore(enrollment, semester, credits)) {
+                return;
+            }
+            if (enrollment.getGrade() != null) {
+                gradeCounts.incrementAndGet(enrollment.getGrade().ordinal());
+            }
+            // Only when the source lists a student before its enrollments
+            Student student = students.get(enrollment.getStudentId());
+            if (student != null) {
+                attachEnrollment(student, enrollment);
+                refreshRanking(student);
+            }
+        }
+    }
+    
+    private void loadStudent(Student student) {
+        synchronized (enrollments.lockFor(student.getId())) {
+            register(student);
+        }
+    }
+    
+    /**
+     * Write courses, enrollments and students to a data.json document, one
+     * record at a time; out should be buffered
+     */
+    public void exportJson(Writer out) throws IOException {
+        Iterable<Course> courses = () -> courseService.stream().iterator();
+        Iterable<Enrollment> stored = () -> enrollments.stream().iterator();
+        JsonDataFile.write(out, courses, stored, students.values());
+    }
+    
+    /**
+     * Load a data.json document record by record. With a mutation log the
+     * import is durable on return: a snapshot covers it when one is
+     * configured, otherwise each record is logged as it is loaded. Later
+     * changes to imported records can then always be replayed.
+     */
+    public void importJson(Reader in) throws IOException {
+        MutationLog log = mutationLog;
+        boolean logRecords = log != null && snapshotFile == null;
+        JsonDataFile.Handler loader = new JsonDataFile.Handler() {
+            @Override
+            public void course(Course course) {
+                // Logged by addCourse unless a snapshot will cover it
+                courseService.addCourse(course);
+            }
+            
+            @Override
+            public void enrollment(Enrollment enrollment) {
+                loadEnrollment(enrollment);
+                // Replay needs the student first; otherwise logged with it below
+                if (logRecords && students.containsKey(enrollment.getStudentId())) {
+                    logEnrollment(log, enrollment);
+                }
+            }
+            
+            @Override
+            public void student(Student student) {
+                loadStudent(student);
+                if (logRecords) {
+                    log.studentAdded(student);
+                    enrollments.forStudent(student.getId()).forEach(e -> logEnrollment(log, e));
+                }
+            }
+        };
+        searchIndexStale = true;
+        if (log == null || logRecords) {
+            JsonDataFile.read(in, loader);
+            if (logRecords) {
+                log.sync();
+            }
+            return;
+        }
+        try {
+            log.withoutLogging(() -> {
+                try {
+                    JsonDataFile.read(in, loader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        backup();
     }
     
+    private static void logEnrollment(MutationLog log, Enrollment enrollment) {
+        if (!enrollment.isActive()) {
+            return;
+        }
+        CourseCode code = CourseCode.parse(enrollment.getCourseCode());
+        log.enrolled(enrollment.getStudentId(), code);
+        if (enrollment.getGrade() != null) {
+            log.graded(enrollment.getStudentId(), code, enrollment.getGrade());
+        }
+    }
+
+    
     // Utility methods using streams and lambdas
+    // Read off the maintained leaderboard in O(limit)
     public List<Student> getTopStudents(int limit) {
-        return students.values().stream()
-                .filter(Student::isActive)
-                .sorted((s1, s2) -> Double.compare(s2.calculateGPA(), s1.calculateGPA()))
-                .limit(limit)
+        return leaderboard.top(limit).stream()
+                .map(students::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 1-based GPA rank among active students, O(log n)
+     */
+    public int rankOf(String studentId) {
+        int rank = leaderboard.rankOf(studentId);
+        if (rank < 0) {
+            throw new IllegalArgumentException("Student not ranked: " + studentId);
+        }
+        return rank;
+    }
+    
+    /**
+     * Percentage of the other active students ranked below this one, O(log n)
+     */
+    public double percentileOf(String studentId) {
+        int rank = rankOf(studentId);
+        int ranked = leaderboard.size();
+        return ranked <= 1 ? 100.0 : 100.0 * (ranked - rank) / (ranked - 1);
+    }
+    
+    // Single pass over the GPA and active columns
     public double getAverageGPA() {
-        return students.values().stream()
-                .filter(Student::isActive)
-                .mapToDouble(Student::calculateGPA)
-                .average()
-                .orElse(0.0);
+        return enrollments.columns().averageGpa();
     }
     
+    // Snapshot of the per-grade counters maintained by assignGrade
     public Map<String, Long> getGradeDistribution() {
-        return enrollments.values().stream()
+        Map<String, Long> distribution = new HashMap<>();
+        for (Grade grade : Grade.values()) {
+            long count = gradeCounts.get(grade.ordinal());
+            if (count > 0) {
+                distribution.put(grade.name(), count);
+            }
+        }
+        return distribution;
+    }
+    
+    /**
+     * Grade distribution of each department's courses, from one scan of the enrollment columns
+     */
+    public Map<String, Map<String, Long>> getGradeDistributionByDepartment() {
+        long[][] counts = enrollments.columns().gradeCountsByDepartment(Symbols.DEPARTMENTS.size());
+        Grade[] grades = Grade.values();
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        for (int department = 0; department < counts.length; department++) {
+            for (int grade = 0; grade < grades.length; grade++) {
+                if (counts[department][grade] > 0) {
+                    result.computeIfAbsent(Symbols.DEPARTMENTS.symbol(department), d -> new HashMap<>())
+                          .put(grades[grade].name(), counts[department][grade]);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Credits currently carried by enrollments in each department's courses
+     */
+    public Map<String, Long> getEnrolledCreditsByDepartment() {
+        long[] credits = enrollments.columns().activeCreditsByDepartment(Symbols.DEPARTMENTS.size());
+        Map<String, Long> result = new HashMap<>();
+        for (int department = 0; department < credits.length; department++) {
+            if (credits[department] > 0) {
+                result.put(Symbols.DEPARTMENTS.symbol(department), credits[department]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Recompute the grade distribution and average GPA from the objects and
+     * compare them with the counters and the column scans; only meaningful
+     * while no grades are being assigned
+     * @throws IllegalStateException describing the mismatch
+     */
+    public void verifyAggregates() {
+        Map<String, Long> recomputed = enrollments.stream()
                 .filter(e -> e.getGrade() != null)
                 .collect(Collectors.groupingBy(
                     e -> e.getGrade().name(),
                     Collectors.counting()
                 ));
+        Map<String, Long> maintained = getGradeDistribution();
+        if (!recomputed.equals(maintained)) {
+            throw new IllegalStateException("Grade distribution " + maintained + " != recomputed " + recomputed);
+        }
+        long[] scanned = enrollments.columns().gradeCounts();
+        for (Grade grade : Grade.values()) {
+            if (scanned[grade.ordinal()] != gradeCounts.get(grade.ordinal())) {
+                throw new IllegalStateException("Grade column count for " + grade.name() + " is " + scanned[grade.ordinal()]
+                                                + ", expected " + gradeCounts.get(grade.ordinal()));
+            }
+        }
+        double average = students.values().stream()
+                .filter(Student::isActive)
+                .mapToDouble(Student::calculateGPA)
+                .average()
+                .orElse(0.0);
+        if (Math.abs(average - getAverageGPA()) > 1e-9) {
+            throw new IllegalStateException("Average GPA column scan " + getAverageGPA() + " != recomputed " + average);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,413 @@
+package edu.ccrm.util;
+
+import edu.ccrm.io.ParallelGzipOutputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Backups as a single gzip-compressed tar stream
+ * Directories and regular files go into a POSIX (ustar) tar stream, and
+ * that stream is compressed in parallel blocks by ParallelGzipOutputStream.
+ * Paths longer than 100 bytes use a PAX header. Sizes of 8 GiB or more use
+ * GNU base-256 encoding. Extraction streams through GZIPInputStream, so an
+ * archive is never held in memory. Any tar that reads gzip can also unpack
+ * the archives.
+ */
+public final class BackupArchive {
+    public static final String EXTENSION = ".tar.gz";
+
+    private static final int RECORD = 512;
+    private static final int COPY_BUFFER = 64 << 10;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final byte FILE = '0';
+    private static final byte DIRECTORY = '5';
+    private static final byte PAX = 'x';
+    private static final byte PAX_GLOBAL = 'g';
+    private static final byte GNU_LONG_NAME = 'L';
+
+    private BackupArchive() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * What one archive run read and wrote
+     */
+    public static final class Stats {
+        private int files;
+        private long uncompressedBytes;
+        private long compressedBytes;
+        private long elapsedNanos;
+
+        public int getFiles() { return files; }
+        public long getUncompressedBytes() { return uncompressedBytes; }
+        public long getCompressedBytes() { return compressedBytes; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        /**
+         * Uncompressed tar bytes per second
+         */
+        public double getThroughputMBps() {
+            return elapsedNanos == 0 ? 0 : uncompressedBytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files, %s as %s compressed in %d ms (%.1f MB/s)", files,
+                    FileUtils.formatFileSize(uncompressedBytes), FileUtils.formatFileSize(compressedBytes),
+                    getElapsedMillis(), getThroughputMBps());
+        }
+    }
+
+    public static boolean isArchive(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(EXTENSION)
+                && Files.isRegularFile(path);
+    }
+
+    /**
+     * Archive sourceDir into the given file, compressing on the given number of threads
+     */
+    public static Stats create(Path sourceDir, Path archive, int threads) throws IOException {
+        long start = System.nanoTime();
+        Stats stats = new Stats();
+        if (archive.getParent() != null) {
+            Files.createDirectories(archive.getParent());
+        }
+        // Written beside the target and moved into place, so a partial archive is never left behind
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        try {
+            ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                          StandardOpenOption.WRITE), threads);
+            try (OutputStream tar = gzip) {
+                byte[] buffer = new byte[COPY_BUFFER];
+                Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        if (!dir.equals(sourceDir)) {
+                            writeHeader(tar, name(sourceDir, dir) + "/", DIRECTORY, 0, attrs);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (!attrs.isRegularFile()) {
+                            System.err.println("Skipping non-regular file: " + file);
+                            return FileVisitResult.CONTINUE;
+                        }
+                        writeHeader(tar, name(sourceDir, file), FILE, attrs.size(), attrs);
+                        writeContent(tar, file, attrs.size(), buffer);
+                        stats.files++;
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+                tar.write(new byte[2 * RECORD]);
+            }
+            stats.uncompressedBytes = gzip.getBytesIn();
+            stats.compressedBytes = gzip.getBytesOut();
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /**
+     * Unpack an archive into targetDir, streaming it from disk
+     */
+    public static Stats extract(Path archive, Path targetDir) throws IOException {
+        long start = System.nanoTime();
+        Stats stats = new Stats();
+        Path root = targetDir.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        byte[] header = new byte[RECORD];
+        byte[] buffer = new byte[COPY_BUFFER];
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(archive), COPY_BUFFER),
+                                                  COPY_BUFFER)) {
+            String longName = null;
+            while (true) {
+                if (!readRecord(in, header)) {
+                    throw new EOFException("Archive ends without an end marker: " + archive);
+                }
+                if (isZero(header)) {
+                    break;
+                }
+                verifyChecksum(header, archive);
+                byte type = header[156];
+                long size = parseSize(header);
+                stats.uncompressedBytes += RECORD + padded(size);
+                if (type == PAX || type == GNU_LONG_NAME) {
+                    String value = new String(readData(in, size), StandardCharsets.UTF_8);
+                    longName = type == PAX ? paxPath(value, longName) : trimNul(value);
+                    continue;
+                }
+                if (type == PAX_GLOBAL) {
+                    in.skipNBytes(padded(size));
+                    continue;
+                }
+                String name = longName != null ? longName : entryName(header);
+                longName = null;
+                Path path = resolve(root, name);
+                if (type == DIRECTORY) {
+                    Files.createDirectories(path);
+                } else if (type == FILE || type == 0) {
+                    if (path.getParent() != null) {
+                        Files.createDirectories(path.getParent());
+                    }
+                    try (OutputStream out = Files.newOutputStream(path)) {
+                        copy(in, out, size, buffer);
+                    }
+                    in.skipNBytes(padded(size) - size);
+                    Files.setLastModifiedTime(path, FileTime.fromMillis(parseOctal(header, 136, 12) * 1000));
+                    stats.files++;
+                } else {
+                    System.err.println("Skipping unsupported archive entry: " + name);
+                    in.skipNBytes(padded(size));
+                }
+            }
+        }
+        stats.uncompressedBytes += 2 * RECORD;
+        stats.compressedBytes = Files.size(archive);
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    // Writing
+
+    private static void writeHeader(OutputStream tar, String name, byte type, long size,
+                                     BasicFileAttributes attrs) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 100) {
+            byte[] record = paxRecord("path", name);
+            tar.write(header("PaxHeader/" + Math.abs(name.hashCode()), PAX, record.length, 0));
+            tar.write(record);
+            tar.write(new byte[(int) (padded(record.length) - record.length)]);
+            nameBytes = Arrays.copyOf(nameBytes, 100);
+        }
+        tar.write(header(nameBytes, type, size, attrs.lastModifiedTime().toMillis() / 1000));
+    }
+
+    private static byte[] header(String name, byte type, long size, long mtime) {
+        return header(name.getBytes(StandardCharsets.UTF_8), type, size, mtime);
+    }
+
+    private static byte[] header(byte[] name, byte type, long size, long mtime) {
+        byte[] h = new byte[RECORD];
+        System.arraycopy(name, 0, h, 0, Math.min(100, name.length));
+        writeOctal(h, 100, 8, type == DIRECTORY ? 0755 : 0644);
+        writeOctal(h, 108, 8, 0);
+        writeOctal(h, 116, 8, 0);
+        if (size > MAX_OCTAL_SIZE) {
+            h[124] = (byte) 0x80;
+            for (int i = 0; i < 8; i++) {
+                h[135 - i] = (byte) (size >>> (8 * i));
+            }
+        } else {
+            writeOctal(h, 124, 12, size);
+        }
+        writeOctal(h, 136, 12, Math.max(0, mtime));
+        h[156] = type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, h, 257, 6);
+        h[263] = '0';
+        h[264] = '0';
+        Arrays.fill(h, 148, 156, (byte) ' ');
+        int sum = 0;
+        for (byte b : h) {
+            sum += b & 0xff;
+        }
+        writeOctal(h, 148, 7, sum);
+        return h;
+    }
+
+    // "<length> <key>=<value>\n", where length counts the whole record including its own digits
+    private static byte[] paxRecord(String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length++;
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Streams exactly size bytes; a file that shrank is padded with zeros, one that grew is cut
+    private static void writeContent(OutputStream tar, Path file, long size, byte[] buffer) throws IOException {
+        long remaining = size;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                tar.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        if (remaining > 0) {
+            System.err.println("File shrank while archiving: " + file);
+        }
+        Arrays.fill(buffer, (byte) 0);
+        for (long pad = remaining + padded(size) - size; pad > 0; pad -= Math.min(pad, buffer.length)) {
+            tar.write(buffer, 0, (int) Math.min(pad, buffer.length));
+        }
+    }
+
+    private static void writeOctal(byte[] h, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int width = length - 1;
+        for (int i = 0; i < width; i++) {
+            int d = i - (width - digits.length());
+            h[offset + i] = (byte) (d < 0 ? '0' : digits.charAt(d));
+        }
+        h[offset + width] = 0;
+    }
+
+    private static String name(Path sourceDir, Path path) {
+        return sourceDir.relativize(path).toString().replace('\\', '/');
+    }
+
+    // Reading
+
+    private static boolean readRecord(InputStream in, byte[] record) throws IOException {
+        int read = in.readNBytes(record, 0, record.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read < record.length) {
+            throw new EOFException("Truncated archive header");
+        }
+        return true;
+    }
+
+    private static byte[] readData(InputStream in, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - RECORD) {
+            throw new IOException("Archive metadata entry too large: " + size);
+        }
+        byte[] data = in.readNBytes((int) size);
+        if (data.length < size) {
+            throw new EOFException("Truncated archive entry");
+        }
+        in.skipNBytes(padded(size) - size);
+        return data;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size, byte[] buffer) throws IOException {
+        while (size > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, size));
+            if (n < 0) {
+                throw new EOFException("Truncated archive entry");
+            }
+            out.write(buffer, 0, n);
+            size -= n;
+        }
+    }
+
+    private static boolean isZero(byte[] record) {
+        for (byte b : record) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void verifyChecksum(byte[] h, Path archive) throws IOException {
+        long stored = parseOctal(h, 148, 8);
+        long sum = 0;
+        for (int i = 0; i < RECORD; i++) {
+            sum += (i >= 148 && i < 156) ? ' ' : (h[i] & 0xff);
+        }
+        if (sum != stored) {
+            throw new IOException("Corrupt archive header in " + archive);
+        }
+    }
+
+    private static long parseSize(byte[] h) throws IOException {
+        if ((h[124] & 0x80) != 0) {
+            long size = 0;
+            for (int i = 128; i < 136; i++) {
+                size = (size << 8) | (h[i] & 0xff);
+            }
+            if (size < 0) {
+                throw new IOException("Invalid entry size in archive");
+            }
+            return size;
+        }
+        return parseOctal(h, 124, 12);
+    }
+
+    private static long parseOctal(byte[] h, int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = h[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid octal field in archive header");
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private static String entryName(byte[] h) {
+        String name = field(h, 0, 100);
+        String prefix = "ustar".equals(field(h, 257, 5)) ? field(h, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String field(byte[] h, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && h[end] != 0) {
+            end++;
+        }
+        return new String(h, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    // The path record of an extended header, or the name already known when there is none
+    private static String paxPath(String records, String current) {
+        int pos = 0;
+        while (pos < records.length()) {
+            int space = records.indexOf(' ', pos);
+            int newline = records.indexOf('\n', space + 1);
+            if (space < 0 || newline < 0) {
+                break;
+            }
+            String record = records.substring(space + 1, newline);
+            if (record.startsWith("path=")) {
+                current = record.substring(5);
+            }
+            pos = newline + 1;
+        }
+        return current;
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul < 0 ? value : value.substring(0, nul);
+    }
+
+    // Entries may not escape the target directory
+    private static Path resolve(Path root, String name) throws IOException {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IOException("Archive entry outside the target directory: " + name);
+        }
+        return path;
+    }
+
+    private static long padded(long size) {
+        return (size + RECORD - 1) / RECORD * RECORD;
+    }
+}
\ No newline at end of file
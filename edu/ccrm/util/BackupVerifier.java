@@ -0,0 +1,411 @@
+package edu.ccrm.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C checksum manifests for backups
+ * The manifest sits beside the backup (backup_TIMESTAMP.crc32c) so restoring
+ * a backup never copies it back into the data folder. Each file is hashed in
+ * regions of up to 64 MiB read through memory-mapped FileChannel regions
+ * (files under 1 MiB go through a per-thread direct buffer instead, which is
+ * cheaper than mapping). Regions are hashed in parallel and their CRCs are
+ * combined, so one multi-GB file uses every worker too.
+ */
+public final class BackupVerifier {
+    public static final String EXTENSION = ".crc32c";
+
+    private static final String HEADER = "# ccrm backup checksums v1: crc32c, size, path";
+    private static final long REGION = 64L << 20;
+    private static final int MAP_THRESHOLD = 1 << 20;
+    private static final long CRC32C_POLY = 0x82F63B78L; // reflected Castagnoli polynomial
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAP_THRESHOLD));
+
+    private BackupVerifier() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    public enum Status { OK, CORRUPT, MISSING, UNLISTED }
+
+    /**
+     * Outcome and timing for one file
+     */
+    public static final class FileResult {
+        private final String path;
+        private final long size;
+        private Status status = Status.OK;
+        private long hashNanos;
+
+        FileResult(String path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public String getPath() { return path; }
+        public long getSize() { return size; }
+        public Status getStatus() { return status; }
+
+        /**
+         * Time spent hashing, summed over the file's regions
+         */
+        public long getHashNanos() { return hashNanos; }
+
+        public double getThroughputMBps() {
+            return hashNanos == 0 ? 0 : size / (1024.0 * 1024.0) / (hashNanos / 1e9);
+        }
+    }
+
+    /**
+     * Outcome of hashing a whole backup
+     */
+    public static final class Report {
+        private final Path backup;
+        private final List<FileResult> files;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Report(Path backup, List<FileResult> files, long bytes, long elapsedNanos) {
+            this.backup = backup;
+            this.files = Collections.unmodifiableList(files);
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getBackup() { return backup; }
+        public List<FileResult> getFiles() { return files; }
+        public long getBytes() { return bytes; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public List<FileResult> getCorrupt() { return withStatus(Status.CORRUPT); }
+        public List<FileResult> getMissing() { return withStatus(Status.MISSING); }
+
+        /**
+         * Files present in the backup but not in its manifest; reported, but not a failure
+         */
+        public List<FileResult> getUnlisted() { return withStatus(Status.UNLISTED); }
+
+        public boolean isIntact() {
+            return files.stream().allMatch(f -> f.status == Status.OK || f.status == Status.UNLISTED);
+        }
+
+        /**
+         * Bytes hashed per second of wall-clock time
+         */
+        public double getThroughputMBps() {
+            return elapsedNanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+
+        private List<FileResult> withStatus(Status status) {
+            List<FileResult> matching = new ArrayList<>();
+            for (FileResult file : files) {
+                if (file.status == status) {
+                    matching.add(file);
+                }
+            }
+            return matching;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d files, %s hashed in %d ms (%.1f MB/s); %d corrupt, %d missing, %d unlisted",
+                    isIntact() ? "intact" : "DAMAGED", files.size(), FileUtils.formatFileSize(bytes),
+                    getElapsedMillis(), getThroughputMBps(),
+                    getCorrupt().size(), getMissing().size(), getUnlisted().size());
+        }
+    }
+
+    /**
+     * The manifest path for a backup directory or archive
+     */
+    public static Path checksumFile(Path backup) {
+        return backup.resolveSibling(backup.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Hash every file of a backup directory (or a single archive file) and write its manifest
+     */
+    public static Report writeChecksums(Path backup, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Long> sizes = listFiles(backup);
+        List<FileResult> files = new ArrayList<>();
+        sizes.forEach((path, size) -> files.add(new FileResult(path, size)));
+        long[] crcs = hash(backup, files, pool);
+
+        Path manifest = checksumFile(backup);
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < files.size(); i++) {
+                FileResult file = files.get(i);
+                if (file.status != Status.OK) {
+                    throw new IOException("File changed while writing checksums: " + file.path);
+                }
+                writer.write(String.format("%08x\t%d\t%s", crcs[i], file.size, file.path));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Report(backup, files, totalSize(files), System.nanoTime() - start);
+    }
+
+    /**
+     * Re-hash a backup and compare it with its manifest
+     * @throws NoSuchFileException if the backup has no manifest
+     */
+    public static Report verify(Path backup, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        Path manifest = checksumFile(backup);
+        List<FileResult> files = new ArrayList<>();
+        List<Long> expected = new ArrayList<>();
+        Set<String> listed = new HashSet<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", 3);
+            try {
+                expected.add(Long.parseLong(fields[0], 16));
+                files.add(new FileResult(fields[2], Long.parseLong(fields[1])));
+                listed.add(fields[2]);
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed checksum line in " + manifest + ": " + line, e);
+            }
+        }
+        long[] crcs = hash(backup, files, pool);
+        for (int i = 0; i < files.size(); i++) {
+            if (files.get(i).status == Status.OK && crcs[i] != expected.get(i)) {
+                files.get(i).status = Status.CORRUPT;
+            }
+        }
+        if (Files.exists(backup)) {
+            for (Map.Entry<String, Long> file : listFiles(backup).entrySet()) {
+                if (!listed.contains(file.getKey())) {
+                    FileResult unlisted = new FileResult(file.getKey(), file.getValue());
+                    unlisted.status = Status.UNLISTED;
+                    files.add(unlisted);
+                }
+            }
+        }
+        return new Report(backup, files, totalSize(files), System.nanoTime() - start);
+    }
+
+    // Relative path -> size of every regular file; an archive lists just itself
+    private static Map<String, Long> listFiles(Path backup) throws IOException {
+        Map<String, Long> sizes = new TreeMap<>();
+        BasicFileAttributes root = Files.readAttributes(backup, BasicFileAttributes.class);
+        if (!root.isDirectory()) {
+            sizes.put(backup.getFileName().toString(), root.size());
+            return sizes;
+        }
+        Files.walkFileTree(backup, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    String path = backup.relativize(file).toString().replace('\\', '/');
+                    if (path.indexOf('\t') >= 0 || path.indexOf('\n') >= 0) {
+                        throw new IllegalArgumentException("Unsupported character in file name: " + file);
+                    }
+                    sizes.put(path, attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return sizes;
+    }
+
+    private static Path resolve(Path backup, String path) {
+        return Files.isDirectory(backup) ? backup.resolve(path) : backup.resolveSibling(path);
+    }
+
+    /**
+     * CRC32C of every file, hashed as regions in parallel; files that are
+     * missing or not the expected size are marked and get no checksum
+     */
+    private static long[] hash(Path backup, List<FileResult> files, ForkJoinPool pool) throws IOException {
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            long size = files.get(i).size;
+            Path path = resolve(backup, files.get(i).path);
+            for (long offset = 0; offset < size; offset += REGION) {
+                regions.add(new Region(i, path, size, offset, Math.min(REGION, size - offset)));
+            }
+        }
+        if (!regions.isEmpty()) {
+            try {
+                pool.invoke(new HashTask(regions, 0, regions.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Regions are in file order, so each file's CRC is its regions' CRCs combined left to right
+        long[] crcs = new long[files.size()];
+        boolean[] started = new boolean[files.size()];
+        for (Region region : regions) {
+            FileResult file = files.get(region.file);
+            file.hashNanos += region.nanos;
+            if (region.status != Status.OK) {
+                file.status = region.status;
+            } else {
+                crcs[region.file] = started[region.file] ? combine(crcs[region.file], region.crc, region.length)
+                                                         : region.crc;
+                started[region.file] = true;
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            FileResult file = files.get(i);
+            if (file.size == 0 && file.status == Status.OK && !Files.isRegularFile(resolve(backup, file.path))) {
+                file.status = Status.MISSING;
+            }
+        }
+        return crcs;
+    }
+
+    // One slice of one file
+    private static final class Region {
+        final int file;
+        final Path path;
+        final long fileSize;
+        final long offset;
+        final long length;
+        long crc;
+        long nanos;
+        Status status = Status.OK;
+
+        Region(int file, Path path, long fileSize, long offset, long length) {
+            this.file = file;
+            this.path = path;
+            this.fileSize = fileSize;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class HashTask extends RecursiveAction {
+        private final List<Region> regions;
+        private final int from;
+        private final int to;
+
+        HashTask(List<Region> regions, int from, int to) {
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                hashRegion(regions.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new HashTask(regions, from, middle), new HashTask(regions, middle, to));
+        }
+    }
+
+    private static void hashRegion(Region region) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(region.path, StandardOpenOption.READ)) {
+            if (channel.size() != region.fileSize) {
+                region.status = Status.CORRUPT;
+                return;
+            }
+            CRC32C crc = new CRC32C();
+            if (region.fileSize < MAP_THRESHOLD) {
+                ByteBuffer buffer = READ_BUFFER.get();
+                buffer.clear().limit((int) region.length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, region.offset + buffer.position()) < 0) break;
+                }
+                crc.update(buffer.flip());
+            } else {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, region.offset, region.length);
+                crc.update(mapped);
+            }
+            region.crc = crc.getValue();
+        } catch (NoSuchFileException e) {
+            region.status = Status.MISSING;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            region.nanos = System.nanoTime() - start;
+        }
+    }
+
+    private static long totalSize(List<FileResult> files) {
+        long total = 0;
+        for (FileResult file : files) {
+            if (file.status != Status.UNLISTED) {
+                total += file.size;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * CRC of A followed by B from crc(A), crc(B) and B's length, by applying
+     * B's length worth of zero bits to crc(A) in GF(2) (zlib's crc32_combine)
+     */
+    static long combine(long crcA, long crcB, long lengthB) {
+        if (lengthB <= 0) {
+            return crcA;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = CRC32C_POLY; // operator for one zero bit
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd); // two zero bits
+        square(odd, even); // four zero bits
+        do {
+            square(even, odd);
+            if ((lengthB & 1) != 0) {
+                crcA = times(even, crcA);
+            }
+            lengthB >>= 1;
+            if (lengthB == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((lengthB & 1) != 0) {
+                crcA = times(odd, crcA);
+            }
+            lengthB >>= 1;
+        } while (lengthB != 0);
+        return crcA ^ crcB;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
\ No newline at end of file
@@ -1,42 +1,62 @@
 package edu.ccrm.util;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * File utility class demonstrating recursion and NIO.2
  * Demonstrates recursive algorithms and modern Java I/O
+ *
+ * Directory walks run as fork-join tasks, one per subdirectory, on a pool
+ * sized by setParallelism. Each entry is stat-ed once while its directory
+ * is listed and those attributes are reused for sizing and copying.
  */
 public final class FileUtils {
+    // Regular files at least this large are copied in their own task with FileChannel.transferTo
+    private static final long TRANSFER_THRESHOLD = 8L << 20;
+    // Smaller files are copied in batches so a huge flat directory still splits across threads
+    private static final int FILES_PER_TASK = 256;
+    
+    private static volatile ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
     
     private FileUtils() {
         throw new AssertionError("Utility class cannot be instantiated");
     }
     
+    /**
+     * Set the number of threads used to walk, size and copy directory trees
+     */
+    public static synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        if (parallelism != pool.getParallelism()) {
+            ForkJoinPool previous = pool;
+            pool = new ForkJoinPool(parallelism);
+            previous.shutdown();
+        }
+    }
+    
+    public static int getParallelism() {
+        return pool.getParallelism();
+    }
+    
     /**
      * Recursively calculate total size of directory
      * Demonstrates recursion and NIO.2 file walking
      */
     public static long calculateDirectorySize(Path directory) throws IOException {
-        final AtomicLong size = new AtomicLong(0);
-        
-        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                size.addAndGet(attrs.size());
-                return FileVisitResult.CONTINUE;
-            }
-            
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                System.err.println("Failed to visit file: " + file + " (" + exc.getMessage() + ")");
-                return FileVisitResult.CONTINUE;
-            }
-        });
-        
-        return size.get();
+        BasicFileAttributes attrs = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        return attrs.isDirectory() ? invoke(new SizeTask(directory)) : attrs.size();
     }
     
     /**
@@ -44,28 +64,8 @@ public final class FileUtils {
      * Demonstrates recursive file traversal
      */
     public static void listFilesRecursively(Path directory, int maxDepth) {
-        listFilesRecursively(directory, 0, maxDepth);
-    }
-    
-    private static void listFilesRecursively(Path directory, int currentDepth, int maxDepth) {
-        if (currentDepth > maxDepth) return;
-        
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
-            for (Path entry : stream) {
-                // Print with indentation based on depth
-                String indent = "  ".repeat(currentDepth);
-                if (Files.isDirectory(entry)) {
-                    System.out.println(indent + "[DIR]  " + entry.getFileName());
-                    // Recursive call for subdirectories
-                    listFilesRecursively(entry, currentDepth + 1, maxDepth);
-                } else {
-                    System.out.println(indent + "[FILE] " + entry.getFileName() + 
-                                     " (" + formatFileSize(Files.size(entry)) + ")");
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error listing directory: " + directory + " (" + e.getMessage() + ")");
-        }
+        if (maxDepth < 0) return;
+        System.out.print(pool.invoke(new ListTask(directory, 0, maxDepth)));
     }
     
     /**
@@ -82,30 +82,290 @@ public final class FileUtils {
      * Copy directory recursively
      */
     public static void copyDirectory(Path source, Path target) throws IOException {
-        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path targetDir = target.resolve(source.relativize(dir));
-                Files.createDirectories(targetDir);
-                return FileVisitResult.CONTINUE;
-            }
-            
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Path targetFile = target.resolve(source.relativize(file));
-                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-                return FileVisitResult.CONTINUE;
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attrs.isDirectory()) {
+            invoke(new CopyTask(source, target, source));
+        } else {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
             }
-        });
+            copyFile(source, attrs, target);
+        }
     }
     
     /**
      * Backup files to timestamped directory
      */
     public static void createBackup(Path sourceDir, Path backupBaseDir, String timestamp) throws IOException {
+        createBackup(sourceDir, backupBaseDir, timestamp, false);
+    }
+    
+    /**
+     * Backup files to a timestamped directory, or to a single compressed archive
+     * @param archive write backup_TIMESTAMP.tar.gz, compressed on getParallelism() threads
+     */
+    public static void createBackup(Path sourceDir, Path backupBaseDir, String timestamp,
+                                    boolean archive) throws IOException {
+        if (archive) {
+            Path archiveFile = backupBaseDir.resolve("backup_" + timestamp + BackupArchive.EXTENSION);
+            BackupArchive.Stats stats = BackupArchive.create(sourceDir, archiveFile, getParallelism());
+            BackupVerifier.writeChecksums(archiveFile, pool);
+            System.out.println("Backup created: " + archiveFile + " (" + stats + ")");
+            return;
+        }
         Path backupDir = backupBaseDir.resolve("backup_" + timestamp);
         Files.createDirectories(backupDir);
         copyDirectory(sourceDir, backupDir);
+        BackupVerifier.writeChecksums(backupDir, pool);
         System.out.println("Backup created: " + backupDir);
     }
+    
+    /**
+     * Re-hash a backup directory or archive against the checksums written when it was created
+     * @throws NoSuchFileException if the backup has no checksum manifest
+     */
+    public static BackupVerifier.Report verifyBackup(Path backup) throws IOException {
+        BackupVerifier.Report report = BackupVerifier.verify(backup, pool);
+        System.out.println("Backup " + backup + " " + report);
+        for (BackupVerifier.FileResult file : report.getFiles()) {
+            if (file.getStatus() != BackupVerifier.Status.OK) {
+                System.out.println("  " + file.getStatus() + ": " + file.getPath());
+            }
+        }
+        return report;
+    }
+    
+    /**
+     * Incremental backup: files unchanged since the previous one are linked,
+     * large files are stored as deduplicated content-defined chunks
+     */
+    public static IncrementalBackup.Stats createIncrementalBackup(Path sourceDir, Path backupBaseDir,
+                                                                  String timestamp) throws IOException {
+        IncrementalBackup.Stats stats = IncrementalBackup.create(sourceDir, backupBaseDir, timestamp);
+        System.out.println("Incremental backup created: " + backupBaseDir.resolve("backup_" + timestamp) + " (" + stats + ")");
+        return stats;
+    }
+    
+    /**
+     * Rebuild the full tree of a backup directory or archive made by any backup method
+     */
+    public static void restoreBackup(Path backupDir, Path targetDir) throws IOException {
+        if (BackupArchive.isArchive(backupDir)) {
+            BackupArchive.extract(backupDir, targetDir);
+        } else if (IncrementalBackup.isIncremental(backupDir)) {
+            IncrementalBackup.restore(backupDir, targetDir);
+        } else {
+            copyDirectory(backupDir, targetDir);
+        }
+        System.out.println("Backup restored: " + backupDir + " -> " + targetDir);
+    }
+    
+    // Tasks report I/O failures as UncheckedIOException; callers get the IOException back
+    private static <T> T invoke(ForkJoinTask<T> task) throws IOException {
+        try {
+            return pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    // A directory entry with the attributes read when its directory was listed
+    private static final class Node {
+        final Path path;
+        final BasicFileAttributes attrs;
+        
+        Node(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+    }
+    
+    /**
+     * List one directory, stat-ing each entry once
+     * @param lenient report unreadable entries and skip them instead of failing
+     */
+    private static List<Node> list(Path directory, boolean lenient, LinkOption... options) throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                try {
+                    nodes.add(new Node(entry, Files.readAttributes(entry, BasicFileAttributes.class, options)));
+                } catch (IOException e) {
+                    if (!lenient) throw e;
+                    System.err.println("Failed to visit file: " + entry + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+        return nodes;
+    }
+    
+    @SuppressWarnings("serial")
+    private static final class SizeTask extends RecursiveTask<Long> {
+        private final Path directory;
+        
+        SizeTask(Path directory) {
+            this.directory = directory;
+        }
+        
+        @Override
+        protected Long compute() {
+            List<Node> nodes;
+            try {
+                nodes = list(directory, true, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                System.err.println("Failed to visit file: " + directory + " (" + e.getMessage() + ")");
+                return 0L;
+            }
+            long size = 0;
+            List<SizeTask> subdirectories = new ArrayList<>();
+            for (Node node : nodes) {
+                if (node.attrs.isDirectory()) {
+                    SizeTask task = new SizeTask(node.path);
+                    task.fork();
+                    subdirectories.add(task);
+                } else {
+                    size += node.attrs.size();
+                }
+            }
+            // Join newest first so this thread runs its own unstolen forks directly
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                size += subdirectories.get(i).join();
+            }
+            return size;
+        }
+    }
+    
+    // Builds the listing of a subtree in parallel; lines keep directory stream order
+    @SuppressWarnings("serial")
+    private static final class ListTask extends RecursiveTask<StringBuilder> {
+        private final Path directory;
+        private final int depth;
+        private final int maxDepth;
+        
+        ListTask(Path directory, int depth, int maxDepth) {
+            this.directory = directory;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+        }
+        
+        @Override
+        protected StringBuilder compute() {
+            StringBuilder out = new StringBuilder();
+            List<Node> nodes;
+            try {
+                nodes = list(directory, false);
+            } catch (IOException e) {
+                System.err.println("Error listing directory: " + directory + " (" + e.getMessage() + ")");
+                return out;
+            }
+            List<ListTask> subdirectories = new ArrayList<>();
+            if (depth < maxDepth) {
+                for (Node node : nodes) {
+                    if (node.attrs.isDirectory()) {
+                        ListTask task = new ListTask(node.path, depth + 1, maxDepth);
+                        task.fork();
+                        subdirectories.add(task);
+                    }
+                }
+            }
+            String indent = "  ".repeat(depth);
+            int next = 0;
+            for (Node node : nodes) {
+                if (node.attrs.isDirectory()) {
+                    out.append(indent).append("[DIR]  ").append(node.path.getFileName()).append(System.lineSeparator());
+                    if (depth < maxDepth) {
+                        out.append(subdirectories.get(next++).join());
+                    }
+                } else {
+                    out.append(indent).append("[FILE] ").append(node.path.getFileName())
+                       .append(" (").append(formatFileSize(node.attrs.size())).append(")").append(System.lineSeparator());
+                }
+            }
+            return out;
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private static final class CopyTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final Path directory;
+        
+        CopyTask(Path source, Path target, Path directory) {
+            this.source = source;
+            this.target = target;
+            this.directory = directory;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                Files.createDirectories(target.resolve(source.relativize(directory)));
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                List<Node> batch = new ArrayList<>();
+                for (Node node : list(directory, false, LinkOption.NOFOLLOW_LINKS)) {
+                    if (node.attrs.isDirectory()) {
+                        tasks.add(new CopyTask(source, target, node.path));
+                    } else if (node.attrs.isRegularFile() && node.attrs.size() >= TRANSFER_THRESHOLD) {
+                        tasks.add(new FileCopyTask(source, target, List.of(node)));
+                    } else {
+                        batch.add(node);
+                        if (batch.size() == FILES_PER_TASK) {
+                            tasks.add(new FileCopyTask(source, target, batch));
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    tasks.add(new FileCopyTask(source, target, batch));
+                }
+                invokeAll(tasks);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    @SuppressWarnings("serial")
+    private static final class FileCopyTask extends RecursiveAction {
+        private final Path source;
+        private final Path target;
+        private final List<Node> files;
+        
+        FileCopyTask(Path source, Path target, List<Node> files) {
+            this.source = source;
+            this.target = target;
+            this.files = files;
+        }
+        
+        @Override
+        protected void compute() {
+            try {
+                for (Node file : files) {
+                    copyFile(file.path, file.attrs, target.resolve(source.relativize(file.path)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    // Large regular files go through transferTo, which the kernel can serve without a user-space buffer
+    private static void copyFile(Path file, BasicFileAttributes attrs, Path targetFile) throws IOException {
+        if (!attrs.isRegularFile() || attrs.size() < TRANSFER_THRESHOLD) {
+            Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(targetFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long copied = in.transferTo(position, size - position, out);
+                if (copied <= 0) break; // source shrank while copying
+                position += copied;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+package edu.ccrm.util;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Incremental, content-addressed backups
+ * Each backup directory holds a manifest of every file (size, mtime and
+ * SHA-256). Files unchanged since the previous backup are hard-linked from
+ * it; files at or above CHUNKING_THRESHOLD are cut into content-defined
+ * chunks kept once in a shared chunk store, so an edit in the middle of a
+ * large CSV or snapshot only writes the chunks around it.
+ *
+ * Layout under the backup base directory:
+ *   chunks/ab/abcdef...      chunk content, named by its SHA-256
+ *   backup_TIMESTAMP/
+ *     manifest.txt           one line per directory or file
+ *     files/...              small files, stored whole
+ */
+public final class IncrementalBackup {
+    public static final String MANIFEST = "manifest.txt";
+    public static final int CHUNKING_THRESHOLD = 1 << 20;
+
+    private static final String HEADER = "# ccrm backup manifest v1";
+    private static final String FILES = "files";
+    private static final String CHUNKS = "chunks";
+
+    // Content-defined chunking: a Gear rolling hash (window of the last 64 bytes)
+    // cuts where its top 16 bits are zero, about every 64 KiB after MIN_CHUNK
+    private static final int MIN_CHUNK = 16 << 10;
+    private static final int MAX_CHUNK = 256 << 10;
+    private static final long CUT_MASK = 0xFFFFL << 48;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x43434D52L); // fixed, so cut points are stable across runs
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private IncrementalBackup() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * What one backup wrote and reused
+     */
+    public static final class Stats {
+        private int files;
+        private int filesLinked;
+        private int chunksWritten;
+        private int chunksReused;
+        private long bytesScanned;
+        private long bytesWritten;
+        private long elapsedNanos;
+
+        public int getFiles() { return files; }
+        public int getFilesLinked() { return filesLinked; }
+        public int getChunksWritten() { return chunksWritten; }
+        public int getChunksReused() { return chunksReused; }
+        public long getBytesScanned() { return bytesScanned; }
+        public long getBytesWritten() { return bytesWritten; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        @Override
+        public String toString() {
+            return String.format("%d files (%d linked), %d chunks written, %d reused, %s of %s written in %d ms",
+                    files, filesLinked, chunksWritten, chunksReused,
+                    FileUtils.formatFileSize(bytesWritten), FileUtils.formatFileSize(bytesScanned),
+                    getElapsedMillis());
+        }
+    }
+
+    // One manifest line: a directory, a whole file, or a chunked file
+    private static final class Entry {
+        final char kind;
+        final String path;
+        final long size;
+        final long modified;
+        final String hash;
+        final List<String> chunks;
+
+        Entry(char kind, String path, long size, long modified, String hash, List<String> chunks) {
+            this.kind = kind;
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.chunks = chunks;
+        }
+
+        String format() {
+            if (kind == 'D') {
+                return "D\t" + path;
+            }
+            String line = kind + "\t" + path + "\t" + size + "\t" + modified + "\t" + hash;
+            return kind == 'C' ? line + "\t" + String.join(",", chunks) : line;
+        }
+
+        static Entry parse(String line) throws IOException {
+            String[] fields = line.split("\t", -1);
+            try {
+                char kind = fields[0].charAt(0);
+                if (kind == 'D' && fields.length == 2) {
+                    return new Entry('D', fields[1], 0, 0, null, List.of());
+                }
+                if ((kind == 'F' && fields.length == 5) || (kind == 'C' && fields.length == 6)) {
+                    List<String> chunks = kind == 'C' && !fields[5].isEmpty()
+                            ? Arrays.asList(fields[5].split(",")) : List.of();
+                    return new Entry(kind, fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                                     fields[4], chunks);
+                }
+            } catch (RuntimeException e) {
+                // reported below
+            }
+            throw new IOException("Malformed manifest line: " + line);
+        }
+    }
+
+    /**
+     * Back up sourceDir into backupBaseDir/backup_TIMESTAMP, reusing the
+     * latest earlier backup in backupBaseDir
+     */
+    public static Stats create(Path sourceDir, Path backupBaseDir, String timestamp) throws IOException {
+        long start = System.nanoTime();
+        Stats stats = new Stats();
+        Path backupDir = backupBaseDir.resolve("backup_" + timestamp);
+        if (Files.exists(backupDir)) {
+            throw new FileAlreadyExistsException(backupDir.toString());
+        }
+        Path previousDir = latestBackup(backupBaseDir).orElse(null);
+        Map<String, Entry> previous = previousDir == null ? Map.of() : readManifest(previousDir);
+        Path chunkStore = backupBaseDir.resolve(CHUNKS);
+        Files.createDirectories(backupDir.resolve(FILES));
+
+        List<Entry> entries = new ArrayList<>();
+        Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(sourceDir)) {
+                    entries.add(new Entry('D', relative(sourceDir, dir), 0, 0, null, List.of()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    String path = relative(sourceDir, file);
+                    Entry unchanged = previous.get(path);
+                    if (unchanged != null && (unchanged.size != attrs.size()
+                            || unchanged.modified != attrs.lastModifiedTime().toMillis())) {
+                        unchanged = null;
+                    }
+                    entries.add(attrs.size() >= CHUNKING_THRESHOLD
+                            ? backupChunked(file, path, attrs, unchanged, chunkStore, stats)
+                            : backupWhole(file, path, attrs, unchanged, previous.get(path), previousDir, backupDir, stats));
+                    stats.files++;
+                    stats.bytesScanned += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        // The manifest goes last: a backup without one is incomplete and never used as a base
+        Path manifest = backupDir.resolve(MANIFEST);
+        Path temp = backupDir.resolve(MANIFEST + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (Entry entry : entries) {
+                out.write(entry.format());
+                out.newLine();
+            }
+        }
+        Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE);
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /**
+     * Rebuild the full tree of a backup into targetDir, checking every file's hash
+     */
+    public static void restore(Path backupDir, Path targetDir) throws IOException {
+        Map<String, Entry> entries = readManifest(backupDir);
+        Path chunkStore = backupDir.getParent().resolve(CHUNKS);
+        Files.createDirectories(targetDir);
+        for (Entry entry : entries.values()) {
+            Path target = resolve(targetDir, entry.path);
+            if (entry.kind == 'D') {
+                Files.createDirectories(target);
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            MessageDigest digest = sha256();
+            try (OutputStream out = Files.newOutputStream(target)) {
+                if (entry.kind == 'F') {
+                    byte[] bytes = Files.readAllBytes(resolve(backupDir.resolve(FILES), entry.path));
+                    digest.update(bytes);
+                    out.write(bytes);
+                } else {
+                    for (String chunk : entry.chunks) {
+                        byte[] bytes = Files.readAllBytes(chunkPath(chunkStore, chunk));
+                        digest.update(bytes);
+                        out.write(bytes);
+                    }
+                }
+            }
+            if (!hex(digest.digest()).equals(entry.hash)) {
+                throw new IOException("Restored file does not match its backup hash: " + entry.path);
+            }
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+        }
+    }
+
+    public static boolean isIncremental(Path backupDir) {
+        return Files.isRegularFile(backupDir.resolve(MANIFEST));
+    }
+
+    /**
+     * Most recent complete incremental backup, by timestamped name
+     */
+    public static Optional<Path> latestBackup(Path backupBaseDir) throws IOException {
+        if (!Files.isDirectory(backupBaseDir)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> dirs = Files.list(backupBaseDir)) {
+            return dirs.filter(dir -> dir.getFileName().toString().startsWith("backup_"))
+                       .filter(IncrementalBackup::isIncremental)
+                       .max(Comparator.comparing(dir -> dir.getFileName().toString()));
+        }
+    }
+
+    // Small files: an unchanged size and mtime hard-links from the previous backup
+    // without reading the file; otherwise hash in memory and link only if the content is the same
+    private static Entry backupWhole(Path file, String path, BasicFileAttributes attrs, Entry unchanged,
+                                     Entry previous, Path previousDir, Path backupDir, Stats stats)
+            throws IOException {
+        Path target = resolve(backupDir.resolve(FILES), path);
+        Files.createDirectories(target.getParent());
+        if (unchanged != null && unchanged.kind == 'F'
+                && link(resolve(previousDir.resolve(FILES), path), target)) {
+            stats.filesLinked++;
+            return unchanged;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        String hash = hex(sha256().digest(bytes));
+        boolean linked = false;
+        if (previous != null && previous.kind == 'F' && previous.hash.equals(hash)) {
+            linked = link(resolve(previousDir.resolve(FILES), path), target);
+        }
+        if (linked) {
+            stats.filesLinked++;
+        } else {
+            Files.write(target, bytes);
+            stats.bytesWritten += bytes.length;
+        }
+        return new Entry('F', path, bytes.length, attrs.lastModifiedTime().toMillis(), hash, List.of());
+    }
+
+    // Large files: an unchanged size and mtime reuses the chunk list without reading the file
+    private static Entry backupChunked(Path file, String path, BasicFileAttributes attrs, Entry unchanged,
+                                       Path chunkStore, Stats stats) throws IOException {
+        if (unchanged != null && unchanged.kind == 'C') {
+            stats.filesLinked++;
+            stats.chunksReused += unchanged.chunks.size();
+            return unchanged;
+        }
+        MessageDigest fileDigest = sha256();
+        List<String> chunks = new ArrayList<>();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(MAX_CHUNK);
+            long hash = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                fileDigest.update(buffer, 0, read);
+                size += read;
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+                    int length = chunk.size() + i - from + 1;
+                    if ((length >= MIN_CHUNK && (hash & CUT_MASK) == 0) || length >= MAX_CHUNK) {
+                        chunk.write(buffer, from, i - from + 1);
+                        chunks.add(storeChunk(chunk.toByteArray(), chunkStore, stats));
+                        chunk.reset();
+                        hash = 0;
+                        from = i + 1;
+                    }
+                }
+                chunk.write(buffer, from, read - from);
+            }
+            if (chunk.size() > 0) {
+                chunks.add(storeChunk(chunk.toByteArray(), chunkStore, stats));
+            }
+        }
+        return new Entry('C', path, size, attrs.lastModifiedTime().toMillis(), hex(fileDigest.digest()), chunks);
+    }
+
+    private static String storeChunk(byte[] bytes, Path chunkStore, Stats stats) throws IOException {
+        String hash = hex(sha256().digest(bytes));
+        Path target = chunkPath(chunkStore, hash);
+        if (Files.exists(target)) {
+            stats.chunksReused++;
+            return hash;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(hash + ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stats.chunksWritten++;
+        stats.bytesWritten += bytes.length;
+        return hash;
+    }
+
+    private static boolean link(Path existing, Path link) {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false; // e.g. no hard links on this file system; the caller copies instead
+        }
+    }
+
+    private static Map<String, Entry> readManifest(Path backupDir) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(backupDir.resolve(MANIFEST), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+            throw new IOException("Not a backup manifest: " + backupDir.resolve(MANIFEST));
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            if (!line.isEmpty()) {
+                Entry entry = Entry.parse(line);
+                entries.put(entry.path, entry);
+            }
+        }
+        return entries;
+    }
+
+    private static Path chunkPath(Path chunkStore, String hash) {
+        return chunkStore.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String relative(Path base, Path path) {
+        String relative = base.relativize(path).toString().replace('\\', '/');
+        if (relative.indexOf('\t') >= 0 || relative.indexOf('\n') >= 0 || relative.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("File name not supported in a backup: " + relative);
+        }
+        return relative;
+    }
+
+    // Manifest paths must stay inside the directory they are restored into
+    private static Path resolve(Path base, String relative) throws IOException {
+        Path resolved = base.resolve(relative).normalize();
+        if (!resolved.startsWith(base.normalize())) {
+            throw new IOException("Manifest path escapes the backup: " + relative);
+        }
+        return resolved;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder out = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
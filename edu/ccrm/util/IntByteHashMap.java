@@ -0,0 +1,178 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive int keys to primitive byte values
+ * Five bytes per slot and no boxing, sized for small per-entity maps such as
+ * a student's grades. Keys must be non-negative; -1 marks an empty slot.
+ * Absent keys read as the missing value given at construction. Entries can
+ * be walked without allocation through nextSlot/keyAt/valueAt.
+ */
+public final class IntByteHashMap {
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final byte missingValue;
+    private int[] keys;
+    private byte[] values;
+    private int size;
+    private int threshold;
+
+    public IntByteHashMap(byte missingValue) {
+        this(missingValue, 4);
+    }
+
+    public IntByteHashMap(byte missingValue, int expectedSize) {
+        this.missingValue = missingValue;
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return the value for the key, or the missing value if there is none
+     */
+    public byte get(int key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value for the key, or the missing value if there was none
+     */
+    public byte put(int key, byte value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must be non-negative: " + key);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                byte previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Removes the key using backward-shift deletion (no tombstones)
+     */
+    public byte remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return missingValue;
+        }
+        byte previous = values[slot];
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, (byte) 0);
+        size = 0;
+    }
+
+    /**
+     * First occupied slot at or after {@code from}, or -1 when there is none
+     */
+    public int nextSlot(int from) {
+        for (int i = Math.max(from, 0); i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public byte valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int find(int key) {
+        if (key < 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new byte[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Murmur3 32-bit finalizer
+    private static int mix(int key) {
+        key ^= key >>> 16;
+        key *= 0x85ebca6b;
+        key ^= key >>> 13;
+        key *= 0xc2b2ae35;
+        key ^= key >>> 16;
+        return key;
+    }
+}
\ No newline at end of file
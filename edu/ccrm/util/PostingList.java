@@ -0,0 +1,471 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compressed set of non-negative int ordinals (roaring-style posting list)
+ * Values are split into 65536-wide chunks keyed by their high 16 bits; a
+ * chunk is stored as a sorted char array while sparse and switches to a
+ * 1024-word bitmap once it holds more than 4096 values. AND/OR and their
+ * cardinalities work chunk by chunk, word-wise on bitmaps.
+ */
+public final class PostingList {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public PostingList() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+    }
+
+    public void add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int i = indexOfKey(key);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) value);
+        } else {
+            insertContainer(-i - 1, key, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(int value) {
+        if (value < 0) return;
+        int i = indexOfKey((char) (value >>> 16));
+        if (i < 0) return;
+        Container updated = containers[i].remove((char) value);
+        if (updated.cardinality() == 0) {
+            removeContainer(i);
+        } else {
+            containers[i] = updated;
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int i = indexOfKey((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * New posting list holding the values present in both lists
+     */
+    public PostingList and(PostingList other) {
+        PostingList result = new PostingList();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            char a = keys[i], b = other.keys[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                Container c = containers[i].and(other.containers[j]);
+                if (c.cardinality() > 0) {
+                    result.appendContainer(a, c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * New posting list holding the values present in either list
+     */
+    public PostingList or(PostingList other) {
+        PostingList result = new PostingList();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendContainer(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendContainer(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Size of the intersection, computed without materializing it
+     */
+    public int andCardinality(PostingList other) {
+        int total = 0;
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            char a = keys[i], b = other.keys[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                total += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Ascending iteration over the ordinals
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int chunk = 0;
+            private int next = advance(0, -1);
+
+            // Find the first value greater than 'after' starting at chunk 'from'
+            private int advance(int from, int after) {
+                for (chunk = from; chunk < size; chunk++) {
+                    int high = keys[chunk] << 16;
+                    int low = (after >= 0 && (after >>> 16) == keys[chunk]) ? (after & 0xFFFF) + 1 : 0;
+                    int found = low > 0xFFFF ? -1 : containers[chunk].nextValue(low);
+                    if (found >= 0) {
+                        return high | found;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) throw new NoSuchElementException();
+                int current = next;
+                next = advance(chunk, current);
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Lazy ascending stream; nothing is materialized beyond what is consumed
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public String toString() {
+        return "PostingList{cardinality=" + cardinality() + ", chunks=" + size + "}";
+    }
+
+    // Chunk directory management
+    private int indexOfKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container) {
+        insertContainer(size, key, container);
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Posting list values must be non-negative: " + value);
+        }
+    }
+
+    // Chunk containers
+    private abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(char value);
+        abstract Container add(char value);
+        abstract Container remove(char value);
+        abstract Container copy();
+        abstract int nextValue(int from);
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer a) {
+                return other instanceof ArrayContainer b ? a.andArray(b) : a.andBitmap((BitmapContainer) other);
+            }
+            BitmapContainer a = (BitmapContainer) this;
+            return other instanceof ArrayContainer b ? b.andBitmap(a) : a.andBitmap((BitmapContainer) other);
+        }
+
+        Container or(Container other) {
+            if (this instanceof ArrayContainer a && other instanceof ArrayContainer b) {
+                return a.orArray(b);
+            }
+            BitmapContainer result = this instanceof BitmapContainer bitmap
+                    ? (BitmapContainer) bitmap.copy() : ((ArrayContainer) this).toBitmap();
+            return result.orInPlace(other);
+        }
+
+        int andCardinality(Container other) {
+            if (this instanceof BitmapContainer a && other instanceof BitmapContainer b) {
+                int total = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    total += Long.bitCount(a.words[w] & b.words[w]);
+                }
+                return total;
+            }
+            ArrayContainer sparse = (ArrayContainer) (this instanceof ArrayContainer ? this : other);
+            Container probe = sparse == this ? other : this;
+            int total = 0;
+            for (int k = 0; k < sparse.cardinality; k++) {
+                if (probe.contains(sparse.values[k])) total++;
+            }
+            return total;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() { return cardinality; }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality >= ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            int insertAt = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, cardinality - insertAt);
+            values[insertAt] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        int nextValue(int from) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (i < 0) i = -i - 1;
+            return i < cardinality ? values[i] : -1;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int k = 0; k < cardinality; k++) {
+                bitmap.set(values[k]);
+            }
+            return bitmap;
+        }
+
+        Container andArray(ArrayContainer other) {
+            char[] out = new char[Math.max(1, Math.min(cardinality, other.cardinality))];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                if (values[i] < other.values[j]) i++;
+                else if (values[i] > other.values[j]) j++;
+                else { out[n++] = values[i]; i++; j++; }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        Container andBitmap(BitmapContainer bitmap) {
+            char[] out = new char[Math.max(1, cardinality)];
+            int n = 0;
+            for (int k = 0; k < cardinality; k++) {
+                if (bitmap.contains(values[k])) out[n++] = values[k];
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        Container orArray(ArrayContainer other) {
+            if (cardinality + other.cardinality > ARRAY_MAX) {
+                return toBitmap().orInPlace(other);
+            }
+            char[] out = new char[Math.max(1, cardinality + other.cardinality)];
+            int n = 0, i = 0, j = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j >= other.cardinality || (i < cardinality && values[i] < other.values[j])) out[n++] = values[i++];
+                else if (i >= cardinality || values[i] > other.values[j]) out[n++] = other.values[j++];
+                else { out[n++] = values[i]; i++; j++; }
+            }
+            return new ArrayContainer(out, n);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this.words = new long[BITMAP_WORDS];
+        }
+
+        @Override
+        int cardinality() { return cardinality; }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        void set(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            words[value >>> 6] = after;
+            if (before != after) cardinality++;
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            words[value >>> 6] = after;
+            if (before != after) cardinality--;
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        int nextValue(int from) {
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (true) {
+                if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+                if (++w == BITMAP_WORDS) return -1;
+                word = words[w];
+            }
+        }
+
+        Container andBitmap(BitmapContainer other) {
+            BitmapContainer result = new BitmapContainer();
+            int total = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result.words[w] = words[w] & other.words[w];
+                total += Long.bitCount(result.words[w]);
+            }
+            result.cardinality = total;
+            return total <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        BitmapContainer orInPlace(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                int total = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] |= bitmap.words[w];
+                    total += Long.bitCount(words[w]);
+                }
+                cardinality = total;
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int k = 0; k < array.cardinality; k++) {
+                    set(array.values[k]);
+                }
+            }
+            return this;
+        }
+
+        ArrayContainer toArray() {
+            char[] out = new char[Math.max(1, cardinality)];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    out[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+    }
+}
\ No newline at end of file
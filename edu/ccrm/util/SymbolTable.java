@@ -0,0 +1,95 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary encoding of repeated strings to compact int ids
+ * Each distinct value is stored once; entities keep the int id and decode
+ * it on access, which returns the single canonical String instance.
+ * Ids are dense, start at 0 and are never reused; null encodes as NULL_ID.
+ */
+public final class SymbolTable {
+    public static final int NULL_ID = -1;
+
+    private final String name;
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] symbols;
+    private int size; // guarded by this
+
+    public SymbolTable(String name) {
+        this.name = name;
+        this.ids = new ConcurrentHashMap<>();
+        this.symbols = new String[64];
+    }
+
+    /**
+     * Id of the value, assigning the next id on first sight
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            String[] current = symbols;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            symbols = current;
+            size = next + 1;
+            ids.put(value, next);
+            return next;
+        }
+    }
+
+    /**
+     * Id of the value without assigning one, or NULL_ID if it was never interned
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        return id == null ? NULL_ID : id;
+    }
+
+    /**
+     * Decode an id back to its canonical String
+     */
+    public String symbol(int id) {
+        if (id == NULL_ID) {
+            return null;
+        }
+        String[] current = symbols;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown " + name + " symbol: " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * The shared instance equal to the value, so duplicates can be dropped
+     */
+    public String canonical(String value) {
+        return symbol(intern(value));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolTable{" + name + ", size=" + size() + "}";
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package edu.ccrm.util;
 
+import edu.ccrm.domain.CourseCode;
 import java.util.regex.Pattern;
 
 /**
@@ -58,33 +59,8 @@ public final class Validators {
      * Expected format: DEPTXXX-S (e.g., CS101-A)
      */
     public static boolean isValidCourseCode(String courseCode) {
-        if (courseCode == null || courseCode.length() < 6) return false;
-        
-        try {
-            String[] parts = courseCode.split("-");
-            if (parts.length != 2) return false;
-            
-            String deptNum = parts[0];
-            String section = parts[1];
-            
-            // Extract department and number
-            int i = 0;
-            while (i < deptNum.length() && Character.isLetter(deptNum.charAt(i))) {
-                i++;
-            }
-            
-            if (i == 0 || i >= deptNum.length()) return false;
-            
-            String dept = deptNum.substring(0, i);
-            int number = Integer.parseInt(deptNum.substring(i));
-            
-            return dept.length() >= 2 && dept.length() <= 4 && 
-                   number >= 100 && number <= 999 &&
-                   section.length() == 1;
-                   
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        // Single allocation-free pass; the section must be one character here
+        return CourseCode.isValid(courseCode) && courseCode.charAt(courseCode.length() - 2) == '-';
     }
     
     /**